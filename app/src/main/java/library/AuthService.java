@@ -0,0 +1,200 @@
+package library;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// ================= AUTHENTICATION =================
+// Sign-in for every entry point (desk, HTTP API, CLI):
+//
+// - users are looked up by username only; the stored hash is checked in Java with a
+//   constant-time compare, and unknown usernames cost the same as wrong passwords;
+// - password hashing (PBKDF2, deliberately slow) runs on its own small CPU pool, never while
+//   holding a database connection, and old SHA-256 / low-iteration hashes are upgraded in place;
+// - a successful sign-in returns a signed SessionTokens token, so later requests are checked
+//   without the database;
+// - repeat sign-ins within CACHE_TTL are answered from memory: the cache keeps an HMAC of the
+//   password under a per-process key, never the password itself.
+final class AuthService implements AutoCloseable {
+
+    private static final int CACHE_MAX_USERS = 1_024;
+    private static final long CACHE_TTL_MILLIS = Long.getLong("library.auth.cacheSeconds", 300) * 1000;
+
+    static final class Login {
+        final SessionTokens.Principal principal;
+        final String token;
+
+        Login(SessionTokens.Principal principal, String token) {
+            this.principal = principal;
+            this.token = token;
+        }
+    }
+
+    private static final class Verified {
+        final byte[] fingerprint;
+        final String role;
+        final long expiresAtMillis;
+
+        Verified(byte[] fingerprint, String role, long expiresAtMillis) {
+            this.fingerprint = fingerprint;
+            this.role = role;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private final CirculationService service;
+    private final PasswordHasher hasher;
+    private final SessionTokens tokens;
+    private final ExecutorService hashing;
+
+    private final Map<String, Verified> verified = new LinkedHashMap<String, Verified>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+            return size() > CACHE_MAX_USERS;
+        }
+    };
+    private final InstancePool<Mac> fingerprints;
+
+    // --- STATS ---
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rehashes = new LongAdder();
+
+    AuthService(CirculationService service, PasswordHasher hasher, SessionTokens tokens) {
+        this.service = service;
+        this.hasher = hasher;
+        this.tokens = tokens;
+
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger n = new AtomicInteger();
+        // A login flood queues here (and is refused past the queue) instead of starving desk work.
+        this.hashing = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), r -> {
+            Thread t = new Thread(r, "library-auth-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        byte[] cacheKey = new byte[32];
+        new SecureRandom().nextBytes(cacheKey);
+        this.fingerprints = InstancePool.hmacSha256(new SecretKeySpec(cacheKey, "HmacSHA256"));
+    }
+
+    static AuthService fromProperties(CirculationService service) {
+        return new AuthService(service,
+                new PasswordHasher(Integer.getInteger("library.auth.iterations", PasswordHasher.DEFAULT_ITERATIONS)),
+                SessionTokens.fromProperties());
+    }
+
+    // ================= SIGN IN =================
+    // Completes with the signed-in user and a session token, or empty if the credentials are wrong.
+    CompletableFuture<Optional<Login>> login(String username, String password) {
+        return service.metrics().track("login", check(username, password));
+    }
+
+    private CompletableFuture<Optional<Login>> check(String username, String password) {
+        byte[] fingerprint = fingerprint(username, password);
+        Verified cached;
+        synchronized (verified) {
+            cached = verified.get(username);
+        }
+        if (cached != null && cached.expiresAtMillis > System.currentTimeMillis()
+                && MessageDigest.isEqual(cached.fingerprint, fingerprint)) {
+            cacheHits.increment();
+            return CompletableFuture.completedFuture(Optional.of(newLogin(username, cached.role)));
+        }
+
+        databaseChecks.increment();
+        return service.perform("findCredential", (repo, call) -> Optional.ofNullable(repo.findCredential(username, call)))
+                .thenApplyAsync(stored -> {
+                    if (!stored.isPresent()) {
+                        hasher.verifyDummy(password);
+                        failures.increment();
+                        return Optional.<Login>empty();
+                    }
+                    PasswordHasher.Verdict verdict = hasher.verify(password, stored.get().hash);
+                    if (verdict == PasswordHasher.Verdict.MISMATCH) {
+                        failures.increment();
+                        return Optional.<Login>empty();
+                    }
+                    if (verdict == PasswordHasher.Verdict.MATCH_NEEDS_REHASH) upgradeHash(username, stored.get().hash, password);
+                    String role = stored.get().role;
+                    synchronized (verified) {
+                        verified.put(username, new Verified(fingerprint, role, System.currentTimeMillis() + CACHE_TTL_MILLIS));
+                    }
+                    return Optional.of(newLogin(username, role));
+                }, hashing);
+    }
+
+    // Checks a token from an earlier login; no database involved.
+    Optional<SessionTokens.Principal> verifyToken(String token) {
+        return tokens.verify(token);
+    }
+
+    private Login newLogin(String username, String role) {
+        String token = tokens.issue(username, role);
+        return new Login(tokens.verify(token).get(), token);
+    }
+
+    // Re-hash with the current scheme; the conditional UPDATE leaves a concurrent reset alone.
+    private void upgradeHash(String username, String oldHash, String password) {
+        String newHash = hasher.hash(password);
+        service.perform("upgradeHash", (repo, call) -> repo.replacePasswordHash(username, oldHash, newHash, call))
+                .whenComplete((updated, err) -> {
+                    if (err != null) {
+                        System.err.println("Could not upgrade the password hash for '" + username + "'.");
+                        err.printStackTrace();
+                    } else if (updated) {
+                        rehashes.increment();
+                    }
+                });
+    }
+
+    // ================= ADMIN =================
+    // Sets a new password for an existing account. Completes false if no such user.
+    CompletableFuture<Boolean> resetPassword(String username, String newPassword) {
+        return service.metrics().track("resetPassword", CompletableFuture.supplyAsync(() -> hasher.hash(newPassword), hashing)
+                .thenCompose(hash -> service.perform("replacePasswordHash",
+                        (repo, call) -> repo.replacePasswordHash(username, null, hash, call)))
+                .whenComplete((changed, err) -> forget(username)));
+    }
+
+    void forget(String username) {
+        synchronized (verified) {
+            verified.remove(username);
+        }
+    }
+
+    private byte[] fingerprint(String username, String password) {
+        return fingerprints.apply(mac -> {
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    @Override
+    public void close() {
+        hashing.shutdownNow();
+    }
+
+    // ================= STATS =================
+    @Override
+    public String toString() {
+        return "Sign-ins: cached=" + cacheHits.sum() + " checked=" + databaseChecks.sum()
+                + " failed=" + failures.sum() + " hashes upgraded=" + rehashes.sum()
+                + " (PBKDF2 iterations=" + hasher.iterations() + ")";
+    }
+}
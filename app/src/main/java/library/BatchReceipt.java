@@ -0,0 +1,84 @@
+package library;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// ================= SCAN SESSION RECEIPT =================
+// The outcome of one batch check-out or return at the desk: a line per scanned copy, in scan
+// order, for copies committed together in one transaction, and the fines due on the lot.
+final class BatchReceipt {
+
+    enum Kind { CHECKOUT, RETURN }
+
+    static final class Line {
+        final int bookId;
+        final String title;      // null for an unknown copy id
+        final String refused;    // why the copy was left as it was; null once it went through
+        final LocalDate dueDate; // check-outs
+        final BigDecimal fine;   // returns
+
+        Line(int bookId, String title, String refused, LocalDate dueDate, BigDecimal fine) {
+            this.bookId = bookId;
+            this.title = title;
+            this.refused = refused;
+            this.dueDate = dueDate;
+            this.fine = fine;
+        }
+
+        boolean done() {
+            return refused == null;
+        }
+    }
+
+    final Kind kind;
+    final int memberId; // check-outs; 0 for returns
+    final LocalDate date;
+    final List<Line> lines;
+    final List<TitleRow> titles; // new counts of the titles touched, when the backend keeps them
+
+    BatchReceipt(Kind kind, int memberId, LocalDate date, List<Line> lines, List<TitleRow> titles) {
+        this.kind = kind;
+        this.memberId = memberId;
+        this.date = date;
+        this.lines = lines;
+        this.titles = titles;
+    }
+
+    int completed() {
+        int n = 0;
+        for (Line line : lines) if (line.done()) n++;
+        return n;
+    }
+
+    BigDecimal totalFines() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Line line : lines) if (line.done() && line.fine != null) total = total.add(line.fine);
+        return total;
+    }
+
+    // Plain text, for the desk dialog and the printer.
+    String format() {
+        boolean checkout = kind == Kind.CHECKOUT;
+        StringBuilder sb = new StringBuilder(checkout
+                ? "CHECK-OUT RECEIPT   Member " + memberId + "   " + date
+                : "RETURN RECEIPT   " + date).append("\n\n");
+        for (Line line : lines) {
+            String title = line.title == null ? "(unknown copy)" : line.title;
+            if (title.length() > 32) title = title.substring(0, 31) + "~";
+            sb.append(String.format("  Book %-7d %-32s  ", line.bookId, title));
+            if (!line.done()) {
+                sb.append("NOT ").append(checkout ? "ISSUED" : "RETURNED").append(": ").append(line.refused);
+            } else if (checkout) {
+                sb.append("due ").append(line.dueDate);
+            } else {
+                sb.append(line.fine.signum() > 0 ? "OVERDUE, fine $" + line.fine : "on time");
+            }
+            sb.append('\n');
+        }
+        sb.append('\n').append(completed()).append(" of ").append(lines.size())
+                .append(checkout ? " copies checked out." : " copies returned.");
+        if (!checkout) sb.append("\nTotal fines payable: $").append(totalFines());
+        return sb.toString();
+    }
+}
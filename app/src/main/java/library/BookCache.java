@@ -0,0 +1,209 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// ================= BOOK CACHE =================
+// Bounded LRU of `books` rows keyed by book_id. Misses load through from the database;
+// status changes arrive as CatalogEvents (our own commits and other desks' via the poller),
+// so cached rows stay current without re-reading them.
+//
+// Title, author and category never change after insert, and copies are never deleted,
+// so a cached row is always safe for "does this copy exist" and for display. Its status
+// can trail another desk's change by one poll; anything that must be exact (issue, return)
+// still goes through the conditional UPDATE.
+final class BookCache implements CatalogEvents.Listener {
+
+    static final int DEFAULT_MAX_SIZE = 20_000;
+    private static final int IN_LIST_CHUNK = 500;
+    private static final String SELECT_COLUMNS = "SELECT book_id, title, author, category, status FROM books ";
+
+    private final int maxSize;
+    private final Map<Integer, BookRow> rows;
+
+    // A load only lands if no status change touched its stripe while the query was running;
+    // otherwise it could overwrite a newer status with the one it read.
+    private static final int STRIPES = 64;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    // --- STATS ---
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    BookCache(int maxSize) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+        this.maxSize = maxSize;
+        this.rows = new LinkedHashMap<Integer, BookRow>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BookRow> eldest) {
+                if (size() <= BookCache.this.maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    // ================= READ-THROUGH =================
+    // The cached row, or a fresh one from the database; null if no such copy exists.
+    BookRow get(Connection conn, int bookId) throws SQLException {
+        BookRow row = peek(bookId);
+        if (row != null) return row;
+
+        long version = versions.get(stripe(bookId));
+        try (PreparedStatement ps = conn.prepareStatement(SELECT_COLUMNS + "WHERE book_id = ?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                loads.increment();
+                if (!rs.next()) return null;
+                row = read(rs);
+            }
+        }
+        putIfUnchanged(row, version);
+        return row;
+    }
+
+    // Rows for the given ids in one round trip per IN_LIST_CHUNK misses; ids that don't exist are absent.
+    Map<Integer, BookRow> getAll(Connection conn, int[] ids) throws SQLException {
+        Map<Integer, BookRow> found = new HashMap<>(ids.length * 2);
+        List<Integer> missing = new ArrayList<>();
+        synchronized (rows) {
+            for (int id : ids) {
+                BookRow row = rows.get(id);
+                if (row != null) found.put(id, row);
+                else missing.add(id);
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+
+        for (int from = 0; from < missing.size(); from += IN_LIST_CHUNK) {
+            List<Integer> chunk = missing.subList(from, Math.min(missing.size(), from + IN_LIST_CHUNK));
+            long[] seen = new long[chunk.size()];
+            for (int i = 0; i < seen.length; i++) seen[i] = versions.get(stripe(chunk.get(i)));
+
+            StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append("WHERE book_id IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ", ?");
+            try (PreparedStatement ps = conn.prepareStatement(sql.append(')').toString())) {
+                for (int i = 0; i < chunk.size(); i++) ps.setInt(i + 1, chunk.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    loads.increment();
+                    Map<Integer, Integer> position = new HashMap<>(chunk.size() * 2);
+                    for (int i = 0; i < chunk.size(); i++) position.put(chunk.get(i), i);
+                    while (rs.next()) {
+                        BookRow row = read(rs);
+                        found.put(row.bookId, row);
+                        putIfUnchanged(row, seen[position.get(row.bookId)]);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    // Cache-only lookup; counts as a hit or a miss.
+    BookRow peek(int bookId) {
+        BookRow row;
+        synchronized (rows) {
+            row = rows.get(bookId);
+        }
+        (row != null ? hits : misses).increment();
+        return row;
+    }
+
+    // ================= UPDATES =================
+    void put(BookRow row) {
+        synchronized (rows) {
+            rows.put(row.bookId, row);
+        }
+    }
+
+    // Drops a row whose cached status turned out to be wrong; the next read reloads it.
+    void invalidate(int bookId) {
+        versions.incrementAndGet(stripe(bookId));
+        synchronized (rows) {
+            if (rows.remove(bookId) != null) invalidations.increment();
+        }
+    }
+
+    @Override
+    public void statusChanged(int bookId, String status) {
+        versions.incrementAndGet(stripe(bookId));
+        synchronized (rows) {
+            BookRow row = rows.get(bookId);
+            if (row != null && !status.equals(row.status)) rows.put(bookId, row.withStatus(status));
+        }
+    }
+
+    @Override
+    public void booksAdded(List<BookRow> added) {
+        // New ids can't collide with cached ones; they are loaded on first use rather than
+        // letting a bulk import flush the copies the desks are actually circulating.
+    }
+
+    private void putIfUnchanged(BookRow row, long version) {
+        synchronized (rows) {
+            if (versions.get(stripe(row.bookId)) == version) rows.put(row.bookId, row);
+        }
+    }
+
+    private static int stripe(int bookId) {
+        return bookId & (STRIPES - 1);
+    }
+
+    private static BookRow read(ResultSet rs) throws SQLException {
+        return new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+    }
+
+    // ================= STATS =================
+    Stats stats() {
+        int size;
+        synchronized (rows) {
+            size = rows.size();
+        }
+        return new Stats(size, maxSize, hits.sum(), misses.sum(), loads.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    static final class Stats {
+        final int size;
+        final int maxSize;
+        final long hits;
+        final long misses;
+        final long loads;
+        final long evictions;
+        final long invalidations;
+
+        Stats(int size, int maxSize, long hits, long misses, long loads, long evictions, long invalidations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return "Books cached: " + size + "/" + maxSize + "\n"
+                    + String.format("Lookups: hits=%d misses=%d (%.1f%% hit rate)%n", hits, misses, hitRate() * 100)
+                    + "Database loads=" + loads + " evictions=" + evictions + " invalidations=" + invalidations;
+        }
+    }
+}
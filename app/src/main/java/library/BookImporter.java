@@ -0,0 +1,517 @@
+package library;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// ================= BULK BOOK IMPORT =================
+// Streams a catalog file (CSV with a header row, a JSON array, or JSON Lines), validates each
+// record, and inserts the copies with JDBC batches: batchSize rows per executeBatch() and
+// chunkSize rows per commit. With MySQL's rewriteBatchedStatements=true a batch becomes a single
+// multi-row INSERT, so 200k copies cost a few hundred round trips instead of 200k.
+//
+// Recognised fields: title (required), author (required), category (default "General"),
+// copies (default 1). The Add Book dialog goes through the same insert path.
+final class BookImporter {
+
+    static final int DEFAULT_BATCH_SIZE = 500;
+    static final int DEFAULT_CHUNK_SIZE = 5_000;
+    static final int MAX_COPIES_PER_ROW = 10_000;
+    private static final int MAX_REJECTIONS_KEPT = 1_000;
+
+    private static final String FORMAT_ERROR = "\0format-error"; // never a real column name
+    private static final String INSERT_SQL = "INSERT INTO books (title, author, category) VALUES (?, ?, ?)";
+
+    // One validated catalog record; expands to `copies` rows in `books`.
+    static final class ImportRow {
+        final String title;
+        final String author;
+        final String category;
+        final int copies;
+
+        ImportRow(String title, String author, String category, int copies) {
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.copies = copies;
+        }
+    }
+
+    static final class Rejection {
+        final long line;
+        final String reason;
+
+        Rejection(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + reason;
+        }
+    }
+
+    static final class ImportReport {
+        long recordsRead;
+        long recordsAccepted;
+        long copiesInserted;
+        long rejectedCount;
+        long elapsedNanos;
+        boolean cancelled;
+        Rejection stoppedAt; // a format error the reader could not get past; records before it were imported
+        final List<Rejection> rejections = new ArrayList<>();
+
+        double copiesPerSecond() {
+            return elapsedNanos == 0 ? 0 : copiesInserted / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Records read: %d%nAccepted: %d%nRejected: %d%nCopies inserted: %d%n" +
+                            "Time: %.2f s (%.0f copies/s)%n", recordsRead, recordsAccepted, rejectedCount,
+                    copiesInserted, elapsedNanos / 1e9, copiesPerSecond()));
+            if (cancelled) sb.append("Import was cancelled; committed chunks were kept.\n");
+            if (stoppedAt != null) sb.append("Import stopped at ").append(stoppedAt).append("; the records before it were imported.\n");
+            int shown = Math.min(20, rejections.size());
+            for (int i = 0; i < shown; i++) sb.append("  ").append(rejections.get(i)).append('\n');
+            if (rejectedCount > shown) sb.append("  ... ").append(rejectedCount - shown).append(" more\n");
+            return sb.toString();
+        }
+    }
+
+    private final CatalogEvents events;
+    private final int batchSize;
+    private final int chunkSize;
+
+    BookImporter(CatalogEvents events, int batchSize, int chunkSize) {
+        if (batchSize < 1 || chunkSize < batchSize) throw new IllegalArgumentException("Need 1 <= batchSize <= chunkSize");
+        this.events = events;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    // ================= FILE IMPORT =================
+    ImportReport importFile(Connection conn, CirculationService.Call<?> call, Path file) throws SQLException, IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            skipByteOrderMark(in);
+            RecordSource source;
+            if (name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                source = startsWithArray(in) ? new JsonArraySource(in) : new JsonLinesSource(in);
+            } else {
+                source = new CsvSource(in);
+            }
+            return run(conn, call, source);
+        }
+    }
+
+    // Excel and many catalog exports start UTF-8 files with a BOM; the sources never see it.
+    private static void skipByteOrderMark(BufferedReader in) throws IOException {
+        in.mark(1);
+        if (in.read() != '\uFEFF') in.reset();
+    }
+
+    // A .json file is either one top-level array or, like .jsonl, one object per line.
+    private static boolean startsWithArray(BufferedReader in) throws IOException {
+        in.mark(4096);
+        int first;
+        int skipped = 0;
+        do {
+            first = in.read();
+        } while (++skipped < 4096 && (first == ' ' || first == '\t' || first == '\n' || first == '\r'));
+        in.reset();
+        return first == '[';
+    }
+
+    // ================= DIRECT INSERT (Add Book dialog) =================
+    ImportReport insert(Connection conn, CirculationService.Call<?> call, ImportRow row) throws SQLException, IOException {
+        return run(conn, call, new RecordSource() {
+            private boolean done;
+
+            @Override
+            public Map<String, String> next() {
+                if (done) return null;
+                done = true;
+                Map<String, String> fields = new HashMap<>();
+                fields.put("title", row.title);
+                fields.put("author", row.author);
+                fields.put("category", row.category);
+                fields.put("copies", Integer.toString(row.copies));
+                return fields;
+            }
+
+            @Override
+            public long line() {
+                return 1;
+            }
+        });
+    }
+
+    // ================= PIPELINE =================
+    private ImportReport run(Connection conn, CirculationService.Call<?> call, RecordSource source) throws SQLException, IOException {
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+        List<ImportRow> chunk = new ArrayList<>();
+        int chunkCopies = 0;
+
+        while (true) {
+            Map<String, String> record;
+            try {
+                record = source.next();
+            } catch (IOException e) {
+                // The reader lost its place (e.g. a broken JSON array): keep what was read so far.
+                report.stoppedAt = new Rejection(source.line(), e.getMessage());
+                break;
+            }
+            if (record == null) break;
+            if (call.isCancelled()) {
+                report.cancelled = true;
+                break;
+            }
+            report.recordsRead++;
+            String problem = validate(record);
+            if (problem != null) {
+                report.rejectedCount++;
+                if (report.rejections.size() < MAX_REJECTIONS_KEPT) report.rejections.add(new Rejection(source.line(), problem));
+                continue;
+            }
+            report.recordsAccepted++;
+            ImportRow row = toRow(record);
+
+            // Split very large copy counts across chunks so one transaction never exceeds chunkSize rows.
+            int remaining = row.copies;
+            while (remaining > 0) {
+                int take = Math.min(remaining, chunkSize - chunkCopies);
+                chunk.add(take == row.copies ? row : new ImportRow(row.title, row.author, row.category, take));
+                chunkCopies += take;
+                remaining -= take;
+                if (chunkCopies == chunkSize) {
+                    report.copiesInserted += writeChunk(conn, call, chunk);
+                    chunk.clear();
+                    chunkCopies = 0;
+                }
+            }
+        }
+        if (!chunk.isEmpty() && !call.isCancelled()) report.copiesInserted += writeChunk(conn, call, chunk);
+
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // One transaction per chunk; the whole chunk is replayed if it hits a deadlock. The new
+    // copies are registered under their titles in the same transaction.
+    private int writeChunk(Connection conn, CirculationService.Call<?> call, List<ImportRow> chunk) throws SQLException {
+        List<BookRow> added = new ArrayList<>();
+        List<TitleRow> titles = new ArrayList<>();
+        int inserted = CirculationService.inTransaction(conn, () -> {
+            added.clear();
+            titles.clear();
+            int count = 0;
+            try (PreparedStatement ps = call.watch(conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS))) {
+                List<ImportRow> pending = new ArrayList<>(batchSize);
+                for (ImportRow row : chunk) {
+                    for (int i = 0; i < row.copies; i++) {
+                        ps.setString(1, row.title);
+                        ps.setString(2, row.author);
+                        ps.setString(3, row.category);
+                        ps.addBatch();
+                        pending.add(row);
+                        if (pending.size() == batchSize) count += flush(ps, pending, added);
+                    }
+                }
+                if (!pending.isEmpty()) count += flush(ps, pending, added);
+            }
+            if (added.size() != count) throw new SQLException("The driver did not return keys for the new copies");
+            titles.addAll(TitleInventory.registerCopies(conn, added));
+            return count;
+        });
+        events.publishBooksAdded(added);
+        events.publishTitlesChanged(titles);
+        return inserted;
+    }
+
+    private static int flush(PreparedStatement ps, List<ImportRow> pending, List<BookRow> added) throws SQLException {
+        ps.executeBatch();
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            int i = 0;
+            while (keys.next() && i < pending.size()) {
+                ImportRow row = pending.get(i++);
+                added.add(new BookRow(keys.getInt(1), row.title, row.author, row.category, "Available"));
+            }
+        }
+        int n = pending.size();
+        pending.clear();
+        return n;
+    }
+
+    // ================= VALIDATION =================
+    private static String validate(Map<String, String> record) {
+        if (record.containsKey(FORMAT_ERROR)) return record.get(FORMAT_ERROR);
+        String title = trimmed(record.get("title"));
+        String author = trimmed(record.get("author"));
+        String category = trimmed(record.get("category"));
+        if (title.isEmpty()) return "title is required";
+        if (title.length() > 100) return "title longer than 100 characters";
+        if (author.isEmpty()) return "author is required";
+        if (author.length() > 100) return "author longer than 100 characters";
+        if (category.length() > 50) return "category longer than 50 characters";
+        String copies = trimmed(record.get("copies"));
+        if (!copies.isEmpty()) {
+            try {
+                int n = Integer.parseInt(copies);
+                if (n < 1 || n > MAX_COPIES_PER_ROW) return "copies must be between 1 and " + MAX_COPIES_PER_ROW;
+            } catch (NumberFormatException e) {
+                return "copies is not a whole number: " + copies;
+            }
+        }
+        return null;
+    }
+
+    private static ImportRow toRow(Map<String, String> record) {
+        String category = trimmed(record.get("category"));
+        String copies = trimmed(record.get("copies"));
+        return new ImportRow(trimmed(record.get("title")), trimmed(record.get("author")),
+                category.isEmpty() ? "General" : category, copies.isEmpty() ? 1 : Integer.parseInt(copies));
+    }
+
+    private static String trimmed(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    // ================= RECORD SOURCES =================
+    private interface RecordSource {
+        // Next record as lower-case field name -> value, or null at end of input.
+        Map<String, String> next() throws IOException;
+
+        long line();
+    }
+
+    // RFC 4180-style CSV: header row, quoted fields with "" escapes and embedded newlines.
+    // A record that breaks the format (a quote that never closes) is rejected, and reading resumes
+    // on the line after the one it started on. A quoted field may run to MAX_RECORD_CHARS before
+    // it counts as unterminated, which also bounds what is held for the rewind.
+    private static final class CsvSource implements RecordSource {
+        private static final int MAX_RECORD_CHARS = 64 * 1024;
+
+        private final Reader in;
+        private String[] header;
+        private long line = 1;
+        private long recordLine = 1;
+        private int pending = -2;
+        private final StringBuilder raw = new StringBuilder(); // the current record as read
+        private String replay = "";                          // text to re-read after a rewind
+        private int replayPos;
+        private String malformed;
+
+        CsvSource(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) readHeader();
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) return null;
+            } while (malformed == null && values.size() == 1 && values.get(0).isEmpty()); // blank line
+
+            Map<String, String> record = new HashMap<>();
+            if (malformed != null) {
+                record.put(FORMAT_ERROR, malformed);
+                return record;
+            }
+            for (int i = 0; i < header.length && i < values.size(); i++) record.put(header[i], values.get(i));
+            if (values.size() != header.length) {
+                record.put(FORMAT_ERROR, "expected " + header.length + " fields but found " + values.size());
+            }
+            return record;
+        }
+
+        @Override
+        public long line() {
+            return recordLine;
+        }
+
+        private void readHeader() throws IOException {
+            List<String> names = readRecord();
+            if (names == null) throw new IOException("CSV file is empty");
+            if (malformed != null) throw new IOException("header row: " + malformed);
+            header = new String[names.size()];
+            for (int i = 0; i < header.length; i++) header[i] = names.get(i).trim().toLowerCase(Locale.ROOT);
+        }
+
+        private List<String> readRecord() throws IOException {
+            malformed = null;
+            raw.setLength(0);
+            recordLine = line;
+            int c = read();
+            if (c == -1) return null;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) return rewind("quoted field is never closed");
+                    if (raw.length() > MAX_RECORD_CHARS) {
+                        return rewind("quoted field runs past " + MAX_RECORD_CHARS + " characters; missing closing quote?");
+                    }
+                    if (c == '"') {
+                        int nextChar = read();
+                        if (nextChar == '"') field.append('"');
+                        else {
+                            quoted = false;
+                            c = nextChar;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    int nextChar = read();
+                    if (nextChar != '\n') unread(nextChar);
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        // Rejects the current record and goes back to the line after the one it started on.
+        private List<String> rewind(String reason) {
+            malformed = reason;
+            StringBuilder rest = new StringBuilder();
+            int firstBreak = raw.indexOf("\n");
+            if (firstBreak >= 0) rest.append(raw, firstBreak + 1, raw.length());
+            if (pending >= 0) rest.append((char) pending);
+            pending = -2;
+            rest.append(replay, replayPos, replay.length());
+            replay = rest.toString();
+            replayPos = 0;
+            line = recordLine + 1;
+            return new ArrayList<>();
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (pending != -2) {
+                c = pending;
+                pending = -2;
+            } else if (replayPos < replay.length()) {
+                c = replay.charAt(replayPos++);
+            } else {
+                c = in.read();
+            }
+            if (c == -1) return c;
+            raw.append((char) c);
+            if (c == '\n') line++;
+            return c;
+        }
+
+        private void unread(int c) {
+            if (c != -1) {
+                raw.setLength(raw.length() - 1);
+                if (c == '\n') line--;
+            }
+            pending = c;
+        }
+    }
+
+    private static Map<String, String> toRecord(Object value) {
+        Map<String, String> record = new HashMap<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                Object v = e.getValue();
+                record.put(e.getKey().toString().toLowerCase(Locale.ROOT), v == null ? null : v.toString());
+            }
+        } else {
+            record.put(FORMAT_ERROR, "expected a JSON object");
+        }
+        return record;
+    }
+
+    // A top-level JSON array of objects, streamed element by element. A syntax error inside the
+    // array leaves no reliable place to resume, so it ends the import (see ImportReport.stoppedAt).
+    private static final class JsonArraySource implements RecordSource {
+        private final Json.Parser parser;
+        private boolean first = true;
+        private long recordLine;
+
+        JsonArraySource(Reader in) {
+            parser = new Json.Parser(in);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            recordLine = parser.line();
+            if (first) parser.beginArray();
+            if (!parser.hasNextElement(first)) return null;
+            first = false;
+            parser.skipWhitespace();
+            recordLine = parser.line();
+            return toRecord(parser.readValue());
+        }
+
+        @Override
+        public long line() {
+            return recordLine;
+        }
+    }
+
+    // JSON Lines: one object per line, so a line that doesn't parse is rejected on its own.
+    private static final class JsonLinesSource implements RecordSource {
+        private final BufferedReader in;
+        private long line;
+
+        JsonLinesSource(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String text;
+            do {
+                text = in.readLine();
+                if (text == null) return null;
+                line++;
+            } while (text.trim().isEmpty());
+            try {
+                return toRecord(Json.parse(text, line));
+            } catch (IOException e) {
+                Map<String, String> record = new HashMap<>();
+                record.put(FORMAT_ERROR, e.getMessage());
+                return record;
+            }
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package library;
+
+// One copy from the `books` table, as shown on the dashboard and passed around in change events.
+final class BookRow {
+    final int bookId;
+    final String title;
+    final String author;
+    final String category;
+    final String status;
+
+    BookRow(int bookId, String title, String author, String category, String status) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.category = category;
+        this.status = status;
+    }
+
+    BookRow withStatus(String newStatus) {
+        return new BookRow(bookId, title, author, category, newStatus);
+    }
+}
@@ -0,0 +1,232 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// ================= CROSS-DESK CHANGE POLLER =================
+// Picks up issues, returns and additions made from other desks with one cheap indexed
+// query on books.last_modified, and republishes them as CatalogEvents.
+//
+// The cursor is the composite (last_modified, book_id) so a bulk insert sharing one
+// timestamp still makes progress. Rows younger than commitLag are re-read on the next
+// tick, because a slower transaction may still commit with an earlier timestamp; the
+// listeners treat repeats as no-ops. `titles` is followed the same way on its own cursor.
+//
+// Limit: last_modified is stamped when a row is written, not when its transaction commits,
+// so a transaction open longer than commitLag (a large import chunk, the title backfill)
+// can commit rows behind the cursor. Each tick therefore also re-reads one page of books
+// and titles by id, wrapping around, so every row is reconciled within
+// (rows / reconcileRows) ticks. Copies or titles that land below an id already announced
+// are only corrected there, not added, and appear once the view reloads.
+final class CatalogChangePoller implements AutoCloseable {
+
+    static final long DEFAULT_COMMIT_LAG_MILLIS = 2_000;
+    static final int DEFAULT_RECONCILE_ROWS = 500;
+
+    private static final int BATCH = 500;
+    private static final int MAX_BATCHES_PER_TICK = 20;
+
+    private static final String NOW_QUERY = "SELECT CURRENT_TIMESTAMP(3), MAX(book_id) FROM books";
+    private static final String CHANGES_QUERY =
+            "SELECT book_id, title, author, category, status, last_modified FROM books " +
+            "WHERE last_modified > ? OR (last_modified = ? AND book_id > ?) " +
+            "ORDER BY last_modified, book_id LIMIT ?";
+    private static final String TITLE_CHANGES_QUERY =
+            "SELECT " + TitleInventory.COLUMNS + ", last_modified FROM titles " +
+            "WHERE last_modified > ? OR (last_modified = ? AND title_id > ?) " +
+            "ORDER BY last_modified, title_id LIMIT ?";
+    private static final String BOOK_PAGE_QUERY =
+            "SELECT book_id, title, author, category, status FROM books WHERE book_id > ? ORDER BY book_id LIMIT ?";
+    private static final String TITLE_PAGE_QUERY =
+            "SELECT " + TitleInventory.COLUMNS + " FROM titles WHERE title_id > ? ORDER BY title_id LIMIT ?";
+
+    private final ConnectionSource db;
+    private final CatalogEvents events;
+    private final long commitLagMillis;
+    private final int reconcileRows;
+    private final ScheduledExecutorService timer;
+
+    private Timestamp cursorTime;
+    private int cursorId;
+    private Timestamp titleCursorTime;
+    private int titleCursorId;
+    private int reconcileBookId;
+    private int reconcileTitleId;
+
+    // reconcileRows = 0 turns the rolling reconcile off.
+    CatalogChangePoller(ConnectionSource db, CatalogEvents events, long commitLagMillis, int reconcileRows) {
+        this.db = db;
+        this.events = events;
+        this.commitLagMillis = commitLagMillis;
+        this.reconcileRows = reconcileRows;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void start(long periodMillis) {
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // One tick: bounded number of batches so a huge backlog can't monopolise a connection.
+    void poll() throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            Timestamp settled;
+            try (PreparedStatement ps = conn.prepareStatement(NOW_QUERY); ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                Timestamp dbNow = rs.getTimestamp(1);
+                if (cursorTime == null) {
+                    // First tick: start from "now"; everything older is already on screen.
+                    cursorTime = dbNow;
+                    cursorId = 0;
+                    titleCursorTime = dbNow;
+                    titleCursorId = 0;
+                    events.seedHighestBookId(rs.getInt(2));
+                    seedHighestTitleId(conn);
+                    return;
+                }
+                settled = new Timestamp(dbNow.getTime() - commitLagMillis);
+            }
+
+            Timestamp readTime = cursorTime;
+            int readId = cursorId;
+            for (int batch = 0; batch < MAX_BATCHES_PER_TICK; batch++) {
+                List<BookRow> added = new ArrayList<>();
+                int seen = 0;
+                try (PreparedStatement ps = conn.prepareStatement(CHANGES_QUERY)) {
+                    ps.setTimestamp(1, readTime);
+                    ps.setTimestamp(2, readTime);
+                    ps.setInt(3, readId);
+                    ps.setInt(4, BATCH);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            seen++;
+                            BookRow row = new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                    rs.getString(4), rs.getString(5));
+                            Timestamp modified = rs.getTimestamp(6);
+                            if (row.bookId > events.highestBookId()) added.add(row);
+                            else events.publishStatusChanged(row.bookId, row.status);
+
+                            readTime = modified;
+                            readId = row.bookId;
+                            if (modified.before(settled)) {
+                                cursorTime = modified;
+                                cursorId = row.bookId;
+                            }
+                        }
+                    }
+                }
+                if (!added.isEmpty()) {
+                    added.sort(Comparator.comparingInt(r -> r.bookId));
+                    events.publishBooksAdded(added);
+                }
+                if (seen < BATCH) break;
+            }
+            pollTitles(conn, settled);
+            if (reconcileRows > 0) {
+                reconcileBooks(conn);
+                reconcileTitles(conn);
+            }
+        }
+    }
+
+    private void pollTitles(Connection conn, Timestamp settled) throws SQLException {
+        Timestamp readTime = titleCursorTime;
+        int readId = titleCursorId;
+        for (int batch = 0; batch < MAX_BATCHES_PER_TICK; batch++) {
+            List<TitleRow> changed = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(TITLE_CHANGES_QUERY)) {
+                ps.setTimestamp(1, readTime);
+                ps.setTimestamp(2, readTime);
+                ps.setInt(3, readId);
+                ps.setInt(4, BATCH);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        TitleRow row = TitleInventory.read(rs);
+                        Timestamp modified = rs.getTimestamp(8);
+                        changed.add(row);
+
+                        readTime = modified;
+                        readId = row.titleId;
+                        if (modified.before(settled)) {
+                            titleCursorTime = modified;
+                            titleCursorId = row.titleId;
+                        }
+                    }
+                }
+            }
+            changed.sort(Comparator.comparingInt(r -> r.titleId));
+            if (!changed.isEmpty()) events.publishTitlesChanged(changed);
+            if (changed.size() < BATCH) break;
+        }
+    }
+
+    // ===== ROLLING RECONCILE =====
+    // Catches rows the timestamp cursor skipped; see the class comment.
+    private void reconcileBooks(Connection conn) throws SQLException {
+        List<BookRow> added = new ArrayList<>();
+        int seen = 0;
+        try (PreparedStatement ps = conn.prepareStatement(BOOK_PAGE_QUERY)) {
+            ps.setInt(1, reconcileBookId);
+            ps.setInt(2, reconcileRows);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seen++;
+                    BookRow row = new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5));
+                    if (row.bookId > events.highestBookId()) added.add(row);
+                    else events.publishStatusChanged(row.bookId, row.status);
+                    reconcileBookId = row.bookId;
+                }
+            }
+        }
+        if (!added.isEmpty()) events.publishBooksAdded(added);
+        if (seen < reconcileRows) reconcileBookId = 0;
+    }
+
+    private void reconcileTitles(Connection conn) throws SQLException {
+        List<TitleRow> page = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(TITLE_PAGE_QUERY)) {
+            ps.setInt(1, reconcileTitleId);
+            ps.setInt(2, reconcileRows);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TitleRow row = TitleInventory.read(rs);
+                    page.add(row);
+                    reconcileTitleId = row.titleId;
+                }
+            }
+        }
+        if (!page.isEmpty()) events.publishTitlesChanged(page);
+        if (page.size() < reconcileRows) reconcileTitleId = 0;
+    }
+
+    private void seedHighestTitleId(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT MAX(title_id) FROM titles");
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) events.seedHighestTitleId(rs.getInt(1));
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,100 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ================= CATALOG CHANGE EVENTS =================
+// Published after a circulation change commits, either by this desk (CirculationService)
+// or when another desk's change is picked up by CatalogChangePoller. Listeners are called
+// on the publishing thread and must hop to the EDT themselves if they touch Swing.
+final class CatalogEvents {
+
+    interface Listener {
+        void statusChanged(int bookId, String status);
+
+        // New copies, in ascending book_id order; only ids above every previously announced id.
+        void booksAdded(List<BookRow> rows);
+    }
+
+    // Title-level counterpart, for views that show one row per title.
+    interface TitleListener {
+        // New counts for a known title; drop it if row.version is not newer than what you have.
+        void titleChanged(TitleRow row);
+
+        // New titles, in ascending title_id order; only ids above every previously announced id.
+        void titlesAdded(List<TitleRow> rows);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<TitleListener> titleListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger highestBookId = new AtomicInteger();
+    private final AtomicInteger highestTitleId = new AtomicInteger();
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void addTitleListener(TitleListener listener) {
+        titleListeners.add(listener);
+    }
+
+    void removeTitleListener(TitleListener listener) {
+        titleListeners.remove(listener);
+    }
+
+    // Largest book_id announced so far; the poller uses it to tell inserts from updates.
+    int highestBookId() {
+        return highestBookId.get();
+    }
+
+    void seedHighestBookId(int bookId) {
+        highestBookId.accumulateAndGet(bookId, Math::max);
+    }
+
+    void publishStatusChanged(int bookId, String status) {
+        for (Listener l : listeners) l.statusChanged(bookId, status);
+    }
+
+    // Drops rows that were already announced (e.g. our own insert seen again by the poller).
+    synchronized void publishBooksAdded(List<BookRow> rows) {
+        int highest = highestBookId.get();
+        List<BookRow> fresh = new ArrayList<>(rows.size());
+        for (BookRow row : rows) {
+            if (row.bookId > highest) {
+                fresh.add(row);
+                highest = row.bookId;
+            }
+        }
+        if (fresh.isEmpty()) return;
+        highestBookId.set(highest);
+        for (Listener l : listeners) l.booksAdded(fresh);
+    }
+
+    void seedHighestTitleId(int titleId) {
+        highestTitleId.accumulateAndGet(titleId, Math::max);
+    }
+
+    // Rows in ascending title_id order. Ids above the highest announced so far go out as
+    // titlesAdded, the rest as titleChanged; listeners use version to drop repeats.
+    synchronized void publishTitlesChanged(List<TitleRow> rows) {
+        int highest = highestTitleId.get();
+        List<TitleRow> fresh = new ArrayList<>();
+        for (TitleRow row : rows) {
+            if (row.titleId > highest) {
+                fresh.add(row);
+                highest = row.titleId;
+            } else {
+                for (TitleListener l : titleListeners) l.titleChanged(row);
+            }
+        }
+        if (fresh.isEmpty()) return;
+        highestTitleId.set(highest);
+        for (TitleListener l : titleListeners) l.titlesAdded(fresh);
+    }
+}
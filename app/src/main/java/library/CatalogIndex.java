@@ -0,0 +1,311 @@
+package library;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// ================= IN-MEMORY CATALOG SEARCH =================
+// Inverted index over title, author and category, built once in a streaming pass over `books`
+// and kept current from CatalogEvents.
+//
+// Copies of the same (title, author, category) share one "work", and the posting lists point at
+// works, not copies. A branch with 1M copies of ~100k works therefore indexes ~100k entries.
+// Every query term is a prefix ("eff jav" finds "Effective Java"); works where a term is a whole
+// token rank above prefix-only hits, and available copies are listed before issued ones.
+final class CatalogIndex implements CatalogEvents.Listener {
+
+    static final int DEFAULT_LIMIT = 200;
+
+    private static final byte AVAILABLE = 0;
+    private static final byte ISSUED = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // --- works (deduplicated metadata) ---
+    private final Map<String, Integer> workByKey = new HashMap<>();
+    private final List<String> workTitles = new ArrayList<>();
+    private final List<String> workAuthors = new ArrayList<>();
+    private final List<String> workCategories = new ArrayList<>();
+    private final List<IntList> workCopies = new ArrayList<>();
+
+    // --- copies, in ascending book_id order ---
+    private int[] copyIds = new int[1024];
+    private int[] copyWork = new int[1024];
+    private byte[] copyStatus = new byte[1024];
+    private int copyCount;
+
+    // token -> ascending work ids
+    private final TreeMap<String, IntList> postings = new TreeMap<>();
+
+    // Events that arrive while the initial scan is running are replayed once it finishes.
+    private List<Runnable> deferred = new ArrayList<>();
+
+    // ================= BUILD =================
+    void build(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT book_id, title, author, category, status FROM books ORDER BY book_id",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(1_000); // streamed with useCursorFetch; never the whole table in memory
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BookRow row = new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+                    lock.writeLock().lock();
+                    try {
+                        addCopy(row);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            }
+        }
+        finishBuild();
+    }
+
+    // Same, paging through a storage backend; the branch journal has no SQL to stream from.
+    void build(LibraryRepository repo, CirculationService.Call<?> call) throws SQLException, IOException {
+        int afterId = 0;
+        List<BookRow> page;
+        while (!(page = repo.catalogPage(afterId, CirculationService.MAX_PAGE_SIZE, call)).isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                for (BookRow row : page) addCopy(row);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            afterId = page.get(page.size() - 1).bookId;
+        }
+        finishBuild();
+    }
+
+    private void finishBuild() {
+        List<Runnable> pending;
+        lock.writeLock().lock();
+        try {
+            pending = deferred;
+            deferred = null;
+            for (Runnable r : pending) r.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return deferred == null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return copyCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================= INCREMENTAL UPDATES =================
+    @Override
+    public void statusChanged(int bookId, String status) {
+        update(() -> {
+            int pos = Arrays.binarySearch(copyIds, 0, copyCount, bookId);
+            if (pos >= 0) copyStatus[pos] = "Issued".equals(status) ? ISSUED : AVAILABLE;
+        });
+    }
+
+    @Override
+    public void booksAdded(List<BookRow> rows) {
+        update(() -> {
+            for (BookRow row : rows) {
+                if (copyCount == 0 || row.bookId > copyIds[copyCount - 1]) addCopy(row);
+            }
+        });
+    }
+
+    private void update(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (deferred != null) deferred.add(change);
+            else change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock.
+    private void addCopy(BookRow row) {
+        String title = row.title == null ? "" : row.title;
+        String author = row.author == null ? "" : row.author;
+        String category = row.category == null ? "" : row.category;
+        String key = title + '\u0001' + author + '\u0001' + category;
+
+        Integer work = workByKey.get(key);
+        if (work == null) {
+            work = workTitles.size();
+            workByKey.put(key, work);
+            workTitles.add(title);
+            workAuthors.add(author);
+            workCategories.add(category);
+            workCopies.add(new IntList(2));
+            for (String token : tokenize(title + ' ' + author + ' ' + category)) {
+                IntList list = postings.computeIfAbsent(token, t -> new IntList(4));
+                if (list.size == 0 || list.get(list.size - 1) != work) list.add(work);
+            }
+        }
+
+        if (copyCount == copyIds.length) {
+            int grown = copyIds.length * 2;
+            copyIds = Arrays.copyOf(copyIds, grown);
+            copyWork = Arrays.copyOf(copyWork, grown);
+            copyStatus = Arrays.copyOf(copyStatus, grown);
+        }
+        copyIds[copyCount] = row.bookId;
+        copyWork[copyCount] = work;
+        copyStatus[copyCount] = "Issued".equals(row.status) ? ISSUED : AVAILABLE;
+        workCopies.get(work).add(copyCount);
+        copyCount++;
+    }
+
+    // ================= SEARCH =================
+    static final class Result {
+        final List<BookRow> rows;
+        final int matchingWorks;
+        final long nanos;
+
+        Result(List<BookRow> rows, int matchingWorks, long nanos) {
+            this.rows = rows;
+            this.matchingWorks = matchingWorks;
+            this.nanos = nanos;
+        }
+    }
+
+    Result search(String query, int limit) {
+        long start = System.nanoTime();
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return new Result(new ArrayList<>(), 0, System.nanoTime() - start);
+
+        lock.readLock().lock();
+        try {
+            int works = workTitles.size();
+            long[] matches = null;
+            int[] score = null;
+            for (String term : terms) {
+                long[] termMatches = new long[(works + 63) >>> 6];
+                NavigableMap<String, IntList> range = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+                for (IntList list : range.values()) {
+                    for (int i = 0; i < list.size; i++) {
+                        int w = list.get(i);
+                        termMatches[w >>> 6] |= 1L << w;
+                    }
+                }
+                if (matches == null) matches = termMatches;
+                else for (int i = 0; i < matches.length; i++) matches[i] &= termMatches[i];
+
+                IntList exact = postings.get(term);
+                if (exact != null) {
+                    if (score == null) score = new int[works];
+                    for (int i = 0; i < exact.size; i++) score[exact.get(i)]++;
+                }
+            }
+
+            // Gather matching works, best score first (stable, so catalog order breaks ties).
+            IntList hits = new IntList(64);
+            for (int i = 0; i < matches.length; i++) {
+                long bits = matches[i];
+                while (bits != 0) {
+                    hits.add((i << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+            int[] ranked = rank(hits, score, terms.size());
+
+            List<BookRow> rows = new ArrayList<>(Math.min(limit, 256));
+            for (int w : ranked) {
+                if (rows.size() >= limit) break;
+                collectCopies(w, AVAILABLE, rows, limit);
+                collectCopies(w, ISSUED, rows, limit);
+            }
+            return new Result(rows, hits.size, System.nanoTime() - start);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bucket sort by number of terms that matched a whole token (0..termCount).
+    private static int[] rank(IntList hits, int[] score, int termCount) {
+        if (score == null) return hits.toArray();
+        int[] bucketStart = new int[termCount + 2];
+        for (int i = 0; i < hits.size; i++) bucketStart[termCount - Math.min(termCount, score[hits.get(i)]) + 1]++;
+        for (int b = 1; b < bucketStart.length; b++) bucketStart[b] += bucketStart[b - 1];
+        int[] out = new int[hits.size];
+        for (int i = 0; i < hits.size; i++) {
+            int w = hits.get(i);
+            out[bucketStart[termCount - Math.min(termCount, score[w])]++] = w;
+        }
+        return out;
+    }
+
+    private void collectCopies(int work, byte status, List<BookRow> out, int limit) {
+        IntList copies = workCopies.get(work);
+        for (int i = 0; i < copies.size && out.size() < limit; i++) {
+            int pos = copies.get(i);
+            if (copyStatus[pos] != status) continue;
+            out.add(new BookRow(copyIds[pos], workTitles.get(work), workAuthors.get(work), workCategories.get(work),
+                    status == ISSUED ? "Issued" : "Available"));
+        }
+    }
+
+    // Lower-case letter/digit runs.
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Growable int array; avoids boxing millions of postings.
+    private static final class IntList {
+        private int[] values;
+        int size;
+
+        IntList(int capacity) {
+            values = new int[capacity];
+        }
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package library;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+
+// ================= CIRCULATION REPORTS =================
+// Daily management stats from the loan history: loans per day and per category, the share of
+// returns that came back late, the most borrowed titles and fine revenue. Written as CSV files
+// into a fresh directory per run:
+//
+//   summary.csv      totals for the window
+//   daily.csv        loans by issue date; returns, late returns and fines by return date
+//   categories.csv   the same per category
+//   top_titles.csv   the most borrowed titles
+//
+// One forward-only cursor streams `transactions`. Each row is folded into open-addressing
+// tables keyed by book id and by day (plain int and long arrays, no per-row objects), so the
+// heap holds one slot per copy and per day however many years are scanned. Titles and
+// categories are looked up afterwards, once per copy touched, not once per loan.
+//
+// A run covers the window (watermark, now - lag]: a loan counts as a loan in the window its row
+// was created in, and as a return in the window it was last modified in (the return is the only
+// update a loan gets). The lag leaves time for transactions still committing. A full run starts
+// from the beginning; an incremental one from the watermark the last run left in the output
+// directory, so together they count every loan and every return exactly once.
+final class CirculationReport {
+
+    static final int DEFAULT_TOP_TITLES = 100;
+    static final String WATERMARK_FILE = "circulation.watermark";
+
+    private static final int FETCH_SIZE = 1_000;
+    private static final int IN_LIST_CHUNK = 500;
+    private static final long DEFAULT_LAG_MILLIS = 60_000;
+
+    private static final String ACTIVITY_QUERY =
+            "SELECT book_id, issue_date, due_date, return_date, fine_amount * 100, " +
+            "CASE WHEN created_at > ? AND created_at <= ? THEN 1 ELSE 0 END, " +
+            "CASE WHEN return_date IS NOT NULL AND last_modified > ? AND last_modified <= ? THEN 1 ELSE 0 END " +
+            "FROM transactions " +
+            "WHERE (created_at > ? AND created_at <= ?) " +
+            "OR (last_modified > ? AND last_modified <= ? AND return_date IS NOT NULL)";
+
+    // Columns of the per-copy, per-day, per-category and per-title tallies.
+    private static final int LOANS = 0;
+    private static final int RETURNS = 1;
+    private static final int LATE = 2;
+    private static final int FINE_CENTS = 3;
+    private static final int COLUMNS = 4;
+
+    private final ConnectionSource db;
+    private final int topTitles;
+    private final long lagMillis;
+
+    CirculationReport(ConnectionSource db, int topTitles) {
+        this(db, topTitles, Long.getLong("library.report.lagSeconds", DEFAULT_LAG_MILLIS / 1000) * 1000);
+    }
+
+    CirculationReport(ConnectionSource db, int topTitles, long lagMillis) {
+        if (topTitles < 1) throw new IllegalArgumentException("topTitles must be >= 1");
+        this.db = db;
+        this.topTitles = topTitles;
+        this.lagMillis = lagMillis;
+    }
+
+    static final class Result {
+        final Path directory;
+        final Timestamp from; // null for a full report
+        final Timestamp to;
+        final long rowsScanned;
+        final long loans;
+        final long returns;
+        final long lateReturns;
+        final long fineCents;
+        final long elapsedNanos;
+
+        Result(Path directory, Timestamp from, Timestamp to, long rowsScanned, long[] totals, long elapsedNanos) {
+            this.directory = directory;
+            this.from = from;
+            this.to = to;
+            this.rowsScanned = rowsScanned;
+            this.loans = totals[LOANS];
+            this.returns = totals[RETURNS];
+            this.lateReturns = totals[LATE];
+            this.fineCents = totals[FINE_CENTS];
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s to %s, %d loans, %d returns (%d late), $%s fines; %d rows in %d ms (%.0f rows/s)",
+                    directory.getFileName(), from == null ? "beginning" : from, to, loans, returns,
+                    lateReturns, money(fineCents), rowsScanned, elapsedNanos / 1_000_000,
+                    elapsedNanos == 0 ? 0 : rowsScanned * 1e9 / elapsedNanos);
+        }
+    }
+
+    // ================= ONE RUN =================
+    Result run(Path outputDir, boolean incremental) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(outputDir);
+        Timestamp from = incremental ? readWatermark(outputDir) : null;
+        Timestamp lower = from != null ? from : new Timestamp(0);
+
+        IntTable copies = new IntTable(1 << 12);
+        IntTable days = new IntTable(1 << 10);
+        long rows = 0;
+        Timestamp to;
+        try (Connection conn = db.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT CURRENT_TIMESTAMP(3)");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                to = new Timestamp(rs.getTimestamp(1).getTime() - lagMillis);
+            }
+            if (!to.after(lower)) throw new IllegalStateException("Nothing to report: the last report ran less than "
+                    + lagMillis / 1000 + " s ago");
+
+            try (PreparedStatement ps = conn.prepareStatement(ACTIVITY_QUERY,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(FETCH_SIZE);
+                for (int i = 1; i <= 8; i += 2) {
+                    ps.setTimestamp(i, lower);
+                    ps.setTimestamp(i + 1, to);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        int copy = copies.slot(rs.getInt(1));
+                        if (rs.getInt(6) == 1) {
+                            copies.add(copy, LOANS, 1);
+                            java.sql.Date issued = rs.getDate(2);
+                            if (issued != null) days.add(days.slot((int) issued.toLocalDate().toEpochDay()), LOANS, 1);
+                        }
+                        if (rs.getInt(7) == 1) {
+                            long fineCents = rs.getLong(5);
+                            int returned = (int) rs.getDate(4).toLocalDate().toEpochDay();
+                            java.sql.Date due = rs.getDate(3);
+                            int late = due != null && returned > due.toLocalDate().toEpochDay() ? 1 : 0;
+                            int day = days.slot(returned);
+                            copies.add(copy, RETURNS, 1);
+                            copies.add(copy, LATE, late);
+                            copies.add(copy, FINE_CENTS, fineCents);
+                            days.add(day, RETURNS, 1);
+                            days.add(day, LATE, late);
+                            days.add(day, FINE_CENTS, fineCents);
+                        }
+                    }
+                }
+            }
+
+            String name = "circulation-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(to)
+                    + (from == null ? "-full" : "-incremental");
+            Path tmp = outputDir.resolve(name + ".tmp");
+            Path dir = outputDir.resolve(name);
+            Files.createDirectories(tmp);
+            long[] totals = writeDaily(tmp.resolve("daily.csv"), days);
+            writeCatalogSections(conn, tmp, copies);
+            try (CsvWriter csv = new CsvWriter(tmp.resolve("summary.csv"))) {
+                csv.row("metric", "value");
+                csv.row("from", from == null ? "" : from.toString());
+                csv.row("to", to.toString());
+                csv.row("loans", Long.toString(totals[LOANS]));
+                csv.row("returns", Long.toString(totals[RETURNS]));
+                csv.row("late_returns", Long.toString(totals[LATE]));
+                csv.row("overdue_ratio", ratio(totals[LATE], totals[RETURNS]));
+                csv.row("fine_revenue", money(totals[FINE_CENTS]));
+                csv.row("rows_scanned", Long.toString(rows));
+            }
+            Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+            // Last, so a run that dies before here is simply repeated from the same watermark.
+            writeWatermark(outputDir, to, name);
+            return new Result(dir, from, to, rows, totals, System.nanoTime() - start);
+        }
+    }
+
+    // Days in date order; returns the window's totals.
+    private static long[] writeDaily(Path file, IntTable days) throws IOException {
+        long[] totals = new long[COLUMNS];
+        int[] order = days.rowsByKey();
+        try (CsvWriter csv = new CsvWriter(file)) {
+            csv.row("date", "loans", "returns", "late_returns", "overdue_ratio", "fine_revenue");
+            for (int row : order) {
+                for (int c = 0; c < COLUMNS; c++) totals[c] += days.get(row, c);
+                csv.row(LocalDate.ofEpochDay(days.keyAt(row)).toString(), Long.toString(days.get(row, LOANS)),
+                        Long.toString(days.get(row, RETURNS)), Long.toString(days.get(row, LATE)),
+                        ratio(days.get(row, LATE), days.get(row, RETURNS)), money(days.get(row, FINE_CENTS)));
+            }
+        }
+        return totals;
+    }
+
+    // Rolls the per-copy tallies up to titles and categories, looking each copy up once.
+    private void writeCatalogSections(Connection conn, Path dir, IntTable copies) throws SQLException, IOException {
+        Map<String, long[]> categories = new HashMap<>();
+        Map<String, TitleTally> titles = new HashMap<>();
+        int[] order = copies.rowsByKey();
+        for (int from = 0; from < order.length; from += IN_LIST_CHUNK) {
+            int to = Math.min(order.length, from + IN_LIST_CHUNK);
+            StringBuilder sql = new StringBuilder("SELECT book_id, title, author, category FROM books WHERE book_id IN (");
+            for (int i = from; i < to; i++) sql.append(i == from ? "?" : ", ?");
+            Map<Integer, Integer> rowOf = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql.append(')').toString())) {
+                for (int i = from; i < to; i++) {
+                    ps.setInt(i - from + 1, copies.keyAt(order[i]));
+                    rowOf.put(copies.keyAt(order[i]), order[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int row = rowOf.get(rs.getInt(1));
+                        String name = rs.getString(2);
+                        String author = rs.getString(3) == null ? "" : rs.getString(3);
+                        String category = rs.getString(4) == null ? "" : rs.getString(4);
+                        long[] cat = categories.computeIfAbsent(category, k -> new long[COLUMNS]);
+                        TitleTally title = titles.computeIfAbsent(name + '\0' + author + '\0' + category,
+                                k -> new TitleTally(name, author, category));
+                        for (int c = 0; c < COLUMNS; c++) {
+                            cat[c] += copies.get(row, c);
+                            title.counts[c] += copies.get(row, c);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<String, long[]>> byLoans = new ArrayList<>(categories.entrySet());
+        byLoans.sort((a, b) -> Long.compare(b.getValue()[LOANS], a.getValue()[LOANS]));
+        try (CsvWriter csv = new CsvWriter(dir.resolve("categories.csv"))) {
+            csv.row("category", "loans", "returns", "late_returns", "overdue_ratio", "fine_revenue");
+            for (Map.Entry<String, long[]> e : byLoans) {
+                long[] c = e.getValue();
+                csv.row(e.getKey(), Long.toString(c[LOANS]), Long.toString(c[RETURNS]), Long.toString(c[LATE]),
+                        ratio(c[LATE], c[RETURNS]), money(c[FINE_CENTS]));
+            }
+        }
+
+        // Bounded heap: the catalog may be large, the list is short.
+        PriorityQueue<TitleTally> top = new PriorityQueue<>((a, b) -> Long.compare(a.counts[LOANS], b.counts[LOANS]));
+        for (TitleTally t : titles.values()) {
+            if (t.counts[LOANS] == 0) continue;
+            top.add(t);
+            if (top.size() > topTitles) top.poll();
+        }
+        List<TitleTally> ranked = new ArrayList<>(top);
+        ranked.sort((a, b) -> Long.compare(b.counts[LOANS], a.counts[LOANS]));
+        try (CsvWriter csv = new CsvWriter(dir.resolve("top_titles.csv"))) {
+            csv.row("rank", "title", "author", "category", "loans", "returns", "fine_revenue");
+            for (int i = 0; i < ranked.size(); i++) {
+                TitleTally t = ranked.get(i);
+                csv.row(Integer.toString(i + 1), t.title, t.author, t.category, Long.toString(t.counts[LOANS]),
+                        Long.toString(t.counts[RETURNS]), money(t.counts[FINE_CENTS]));
+            }
+        }
+    }
+
+    private static final class TitleTally {
+        final String title;
+        final String author;
+        final String category;
+        final long[] counts = new long[COLUMNS];
+
+        TitleTally(String title, String author, String category) {
+            this.title = title;
+            this.author = author;
+            this.category = category;
+        }
+    }
+
+    private static String ratio(long part, long whole) {
+        return whole == 0 ? "" : String.format("%.4f", (double) part / whole);
+    }
+
+    private static String money(long cents) {
+        return BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    // ================= WATERMARK =================
+    // Kept next to the reports it describes, so each output directory has its own.
+    private static Timestamp readWatermark(Path outputDir) throws IOException {
+        Path file = outputDir.resolve(WATERMARK_FILE);
+        if (!Files.exists(file)) return null; // first run: everything so far
+        Properties p = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            p.load(in);
+        }
+        return Timestamp.valueOf(p.getProperty("to"));
+    }
+
+    private static void writeWatermark(Path outputDir, Timestamp to, String report) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("to", to.toString());
+        p.setProperty("report", report);
+        Path tmp = outputDir.resolve(WATERMARK_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            p.store(out, "Circulation reports cover loan activity up to 'to'");
+        }
+        Files.move(tmp, outputDir.resolve(WATERMARK_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ================= PRIMITIVE TALLY =================
+    // int key -> COLUMNS longs, open addressing with linear probing. Rows are numbered in
+    // insertion order, so the tallies sit in one flat array and never move when the index grows.
+    private static final class IntTable {
+        private int[] index; // row + 1 per slot; 0 = empty
+        private int[] keys;
+        private long[] values;
+        private int size;
+
+        IntTable(int capacity) {
+            index = new int[capacity * 2];
+            keys = new int[capacity];
+            values = new long[capacity * COLUMNS];
+        }
+
+        int slot(int key) {
+            int mask = index.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                int row = index[i] - 1;
+                if (row < 0) break;
+                if (keys[row] == key) return row;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2 * COLUMNS);
+                rehash(index.length * 2);
+            }
+            keys[size] = key;
+            place(size);
+            return size++;
+        }
+
+        void add(int row, int column, long delta) {
+            values[row * COLUMNS + column] += delta;
+        }
+
+        long get(int row, int column) {
+            return values[row * COLUMNS + column];
+        }
+
+        int keyAt(int row) {
+            return keys[row];
+        }
+
+        // Row numbers in ascending key order.
+        int[] rowsByKey() {
+            long[] packed = new long[size];
+            for (int row = 0; row < size; row++) packed[row] = (long) keys[row] << 32 | row;
+            Arrays.sort(packed);
+            int[] rows = new int[size];
+            for (int i = 0; i < size; i++) rows[i] = (int) packed[i];
+            return rows;
+        }
+
+        private void rehash(int slots) {
+            index = new int[slots];
+            for (int row = 0; row < size; row++) place(row);
+        }
+
+        private void place(int row) {
+            int mask = index.length - 1;
+            int i = mix(keys[row]) & mask;
+            while (index[i] != 0) i = (i + 1) & mask;
+            index[i] = row + 1;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // ================= CSV OUTPUT =================
+    // RFC 4180 rows, encoded into one reusable buffer and written through a FileChannel as it
+    // fills; the file never has to fit in memory.
+    private static final class CsvWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        CsvWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        void row(String... fields) throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) put((byte) ',');
+                String f = fields[i] == null ? "" : fields[i];
+                boolean quote = f.indexOf(',') >= 0 || f.indexOf('"') >= 0 || f.indexOf('\n') >= 0 || f.indexOf('\r') >= 0;
+                if (quote) f = '"' + f.replace("\"", "\"\"") + '"';
+                byte[] bytes = f.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > buffer.remaining()) flush();
+                if (bytes.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.put(bytes);
+                }
+            }
+            put((byte) '\r');
+            put((byte) '\n');
+        }
+
+        private void put(byte b) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put(b);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
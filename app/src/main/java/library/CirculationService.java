@@ -0,0 +1,387 @@
+package library;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ================= CIRCULATION SERVICE =================
+// All database work for the desk lives here and runs on a bounded background
+// executor, never on the Swing Event Dispatch Thread. Every operation returns a
+// cancellable future; the UI only touches Swing components once it completes.
+// Issue, return, catalog reads and sign-in go to a LibraryRepository (the central
+// database, or the branch journal when offline); everything else needs SQL.
+final class CirculationService implements AutoCloseable {
+
+    static final int LOAN_DAYS = 15;
+
+    // Unit of database work. Statements passed through call.watch(...) are cancelled
+    // on the server if the user aborts the request.
+    @FunctionalInterface
+    interface Work<T> {
+        T run(Connection conn, Call<?> call) throws SQLException, IOException;
+    }
+
+    // Unit of work against the storage backend (central database or branch journal).
+    @FunctionalInterface
+    interface RepositoryWork<T> {
+        T run(LibraryRepository repo, Call<?> call) throws SQLException, IOException;
+    }
+
+    private final ConnectionSource db; // null on the branch journal: SQL-only work is refused
+    private final LibraryRepository repository;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final CatalogEvents events = new CatalogEvents();
+    private final BookImporter importer = new BookImporter(events,
+            Integer.getInteger("library.import.batchSize", BookImporter.DEFAULT_BATCH_SIZE),
+            Integer.getInteger("library.import.chunkSize", BookImporter.DEFAULT_CHUNK_SIZE));
+    private final FineCalculator fines = FineCalculator.DEFAULT;
+    private final BookCache books = new BookCache(
+            Integer.getInteger("library.cache.books", BookCache.DEFAULT_MAX_SIZE));
+    private final Metrics metrics;
+
+    CirculationService(ConnectionSource db, int maxConcurrency) {
+        this(db, maxConcurrency, db instanceof ConnectionPool ? ((ConnectionPool) db).metrics() : new Metrics());
+    }
+
+    CirculationService(ConnectionSource db, int maxConcurrency, Metrics metrics) {
+        this(db, null, maxConcurrency, metrics);
+    }
+
+    // Branch mode: desk operations run on the given backend, admin work is unavailable.
+    CirculationService(LibraryRepository repository, int maxConcurrency, Metrics metrics) {
+        this(null, repository, maxConcurrency, metrics);
+    }
+
+    private CirculationService(ConnectionSource db, LibraryRepository repository, int maxConcurrency, Metrics metrics) {
+        this.db = db;
+        this.repository = repository != null ? repository : new JdbcLibraryRepository(db, books, fines);
+        this.metrics = metrics;
+        this.inFlight = new Semaphore(maxConcurrency);
+        this.executor = newExecutor(maxConcurrency);
+        events.addListener(books); // first, so views notified after it read the new status
+    }
+
+    // Virtual threads when the JDK has them (21+), otherwise a small fixed pool of daemon threads.
+    // Either way at most maxConcurrency tasks touch the database at once.
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException notOnThisJdk) {
+            AtomicInteger n = new AtomicInteger();
+            return new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(1024), r -> {
+                        Thread t = new Thread(r, "library-db-" + n.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+    }
+
+    // Committed changes are announced here so open views can update just the affected rows.
+    CatalogEvents events() {
+        return events;
+    }
+
+    // Read-through cache of `books` rows, kept current by the events above.
+    BookCache books() {
+        return books;
+    }
+
+    LibraryRepository repository() {
+        return repository;
+    }
+
+    // Shared with the pool, so desk actions and the JDBC calls under them report together.
+    Metrics metrics() {
+        return metrics;
+    }
+
+    // ================= ASYNC PLUMBING =================
+    // Named work is timed from submission to completion (queueing included, as the desk sees it).
+    <T> Call<T> submit(String operation, Work<T> work) {
+        return metrics.track(operation, submit(work));
+    }
+
+    <T> Call<T> submit(Work<T> work) {
+        if (db == null) {
+            Call<T> refused = new Call<>();
+            refused.completeExceptionally(new SQLException("Not available offline: this desk is running on the branch journal"));
+            return refused;
+        }
+        return execute(call -> {
+            try (Connection conn = db.getConnection()) {
+                return call.isDone() ? null : work.run(conn, call);
+            }
+        });
+    }
+
+    <T> Call<T> perform(String operation, RepositoryWork<T> work) {
+        return metrics.track(operation, execute(call -> work.run(repository, call)));
+    }
+
+    private <T> Call<T> execute(Body<T> body) {
+        Call<T> call = new Call<>();
+        try {
+            executor.execute(() -> call.runWith(body, inFlight));
+        } catch (RejectedExecutionException e) {
+            call.completeExceptionally(e);
+        }
+        return call;
+    }
+
+    @FunctionalInterface
+    private interface Body<T> {
+        T run(Call<T> call) throws Exception;
+    }
+
+    // A CompletableFuture whose cancel() actually stops the database work: it interrupts the
+    // worker and calls Statement.cancel() on whatever query is currently running.
+    static final class Call<T> extends CompletableFuture<T> {
+        private final Set<Statement> watched = ConcurrentHashMap.newKeySet();
+        private volatile Thread runner;
+
+        <S extends Statement> S watch(S stmt) {
+            watched.add(stmt);
+            if (isCancelled()) cancelStatements();
+            return stmt;
+        }
+
+        private void runWith(Body<T> body, Semaphore inFlight) {
+            if (isDone()) return;
+            runner = Thread.currentThread();
+            try {
+                inFlight.acquire();
+                try {
+                    if (!isDone()) complete(body.run(this));
+                } finally {
+                    inFlight.release();
+                }
+            } catch (Throwable t) {
+                completeExceptionally(t);
+            } finally {
+                runner = null;
+                watched.clear();
+                Thread.interrupted(); // don't leak a cancel-interrupt into the next task on this thread
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancelStatements();
+                Thread t = runner;
+                if (t != null && mayInterruptIfRunning) t.interrupt();
+            }
+            return cancelled;
+        }
+
+        private void cancelStatements() {
+            for (Statement stmt : watched) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException ignored) {
+                    // statement already finished or closed
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        repository.close();
+    }
+
+    // ================= CATALOG =================
+    static final int MAX_PAGE_SIZE = 500;
+
+    // One keyset page of the catalog: copies with book_id > afterId, ascending. Shared by the
+    // dashboard table and the HTTP API.
+    CompletableFuture<List<BookRow>> catalogPage(int afterId, int limit) {
+        return perform("catalogPage", (repo, call) -> {
+            if (limit < 1 || limit > MAX_PAGE_SIZE) throw new IllegalArgumentException("limit must be 1.." + MAX_PAGE_SIZE);
+            return repo.catalogPage(afterId, limit, call);
+        });
+    }
+
+    CompletableFuture<Optional<BookRow>> findBook(int bookId) {
+        return perform("findBook", (repo, call) -> Optional.ofNullable(repo.findBook(bookId, call)));
+    }
+
+    // The copies of one title, with their current status.
+    CompletableFuture<List<BookRow>> copiesOf(TitleRow title) {
+        return submit("copiesOf", (conn, call) -> TitleInventory.readCopies(conn, title));
+    }
+
+    // ================= ISSUE BOOK =================
+    enum IssueOutcome { ISSUED, ALREADY_ISSUED, NOT_FOUND }
+
+    static final class IssueResult {
+        final IssueOutcome outcome;
+        final LocalDate dueDate;
+        final TitleRow title; // the title's new counts, when the backend keeps them
+
+        IssueResult(IssueOutcome outcome, LocalDate dueDate, TitleRow title) {
+            this.outcome = outcome;
+            this.dueDate = dueDate;
+            this.title = title;
+        }
+    }
+
+    // Events go out after the backend has committed, so listeners never see a change that
+    // could still roll back.
+    CompletableFuture<IssueResult> issue(int bookId, int memberId) {
+        return perform("issue", (repo, call) -> {
+            LocalDate issueDate = LocalDate.now();
+            IssueResult result = repo.issue(bookId, memberId, issueDate, issueDate.plusDays(LOAN_DAYS), call);
+            if (result.outcome == IssueOutcome.ISSUED) {
+                events.publishStatusChanged(bookId, "Issued");
+                if (result.title != null) events.publishTitlesChanged(Collections.singletonList(result.title));
+            }
+            return result;
+        });
+    }
+
+    // ================= RETURN BOOK =================
+    static final class ReturnResult {
+        final boolean returned;
+        final BigDecimal fine;
+        final TitleRow title;
+
+        ReturnResult(boolean returned, BigDecimal fine, TitleRow title) {
+            this.returned = returned;
+            this.fine = fine;
+            this.title = title;
+        }
+    }
+
+    CompletableFuture<ReturnResult> returnBook(int bookId) {
+        return perform("return", (repo, call) -> {
+            ReturnResult result = repo.returnBook(bookId, LocalDate.now(), call);
+            if (result.returned) {
+                events.publishStatusChanged(bookId, "Available");
+                if (result.title != null) events.publishTitlesChanged(Collections.singletonList(result.title));
+            }
+            return result;
+        });
+    }
+
+    // ================= SCAN SESSIONS =================
+    // A patron's whole armful in one round: one validating read, one transaction, one receipt.
+    static final int MAX_SESSION_SIZE = 200;
+
+    CompletableFuture<BatchReceipt> issueAll(int[] bookIds, int memberId) {
+        return perform("issueSession", (repo, call) -> {
+            LocalDate issueDate = LocalDate.now();
+            BatchReceipt receipt = repo.issueAll(distinct(bookIds), memberId, issueDate, issueDate.plusDays(LOAN_DAYS), call);
+            publish(receipt, "Issued");
+            return receipt;
+        });
+    }
+
+    CompletableFuture<BatchReceipt> returnAll(int[] bookIds) {
+        return perform("returnSession", (repo, call) -> {
+            BatchReceipt receipt = repo.returnAll(distinct(bookIds), LocalDate.now(), call);
+            publish(receipt, "Available");
+            return receipt;
+        });
+    }
+
+    // A copy scanned twice is only handled once; order is kept for the receipt.
+    private static int[] distinct(int[] bookIds) {
+        int[] ids = Arrays.stream(bookIds).distinct().toArray();
+        if (ids.length == 0 || ids.length > MAX_SESSION_SIZE) {
+            throw new IllegalArgumentException("a session takes 1.." + MAX_SESSION_SIZE + " copies");
+        }
+        return ids;
+    }
+
+    private void publish(BatchReceipt receipt, String status) {
+        for (BatchReceipt.Line line : receipt.lines) {
+            if (line.done()) events.publishStatusChanged(line.bookId, status);
+        }
+        if (!receipt.titles.isEmpty()) events.publishTitlesChanged(receipt.titles);
+    }
+
+    // ================= TRANSACTIONS & RETRY =================
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 15;
+
+    @FunctionalInterface
+    interface TxBody<T> {
+        T run() throws SQLException;
+    }
+
+    // Runs body in one transaction and commits. Deadlocks and lock-wait timeouts roll back
+    // and retry with jittered exponential backoff, up to MAX_ATTEMPTS; other errors propagate.
+    static <T> T inTransaction(Connection conn, TxBody<T> body) throws SQLException {
+        conn.setAutoCommit(false);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = body.run();
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                if (attempt >= MAX_ATTEMPTS || !isTransient(e)) throw e;
+                long backoff = BASE_BACKOFF_MILLIS << (attempt - 1);
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // 40001 = serialization failure / deadlock victim; MySQL 1213 = deadlock, 1205 = lock wait timeout.
+    static boolean isTransient(SQLException e) {
+        for (SQLException cur = e; cur != null; cur = cur.getNextException()) {
+            if (cur instanceof SQLTransactionRollbackException || "40001".equals(cur.getSQLState())
+                    || cur.getErrorCode() == 1213 || cur.getErrorCode() == 1205) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ================= ADD BOOK (Admin Only) =================
+    // Same batched, chunk-committed insert path as the bulk import.
+    CompletableFuture<Integer> addCopies(String title, String author, int quantity) {
+        return submit("addCopies", (conn, call) -> {
+            BookImporter.ImportReport report =
+                    importer.insert(conn, call, new BookImporter.ImportRow(title, author, "General", quantity));
+            if (report.rejectedCount > 0) throw new IllegalArgumentException(report.rejections.get(0).reason);
+            return (int) report.copiesInserted;
+        });
+    }
+
+    // ================= BULK IMPORT (Admin Only) =================
+    CompletableFuture<BookImporter.ImportReport> importCatalog(Path file) {
+        return submit("import", (conn, call) -> importer.importFile(conn, call, file));
+    }
+}
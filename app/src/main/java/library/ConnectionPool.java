@@ -0,0 +1,598 @@
+package library;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// ================= CONNECTION POOL =================
+// Bounded pool of physical JDBC connections. Callers keep the familiar
+// "try (Connection conn = connect())" pattern: close() on the handed-out
+// connection returns it to the pool instead of tearing down the socket.
+//
+// - At most maxSize physical connections; borrowers wait up to borrowTimeout.
+// - Idle connections are re-validated before reuse and evicted after idleTimeout.
+// - Connections held longer than leakThreshold are reported; with -Dlibrary.pool.leakTrace=true
+//   the report includes the borrow site, at the cost of a stack trace on every borrow.
+// - Each physical connection keeps an LRU cache of its PreparedStatements. A cached statement
+//   is lent to one caller at a time; preparing the same SQL while it is out gets an uncached one.
+// - Every connect, prepare, execute, commit and rollback is timed into Metrics ("jdbc.*"),
+//   and statements over the slow-query threshold are logged with their SQL.
+final class ConnectionPool implements ConnectionSource, AutoCloseable {
+
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 5_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 10_000;
+    private static final boolean LEAK_TRACE = Boolean.getBoolean("library.pool.leakTrace");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // --- STATS ---
+    private final AtomicInteger physicalCount = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LatencyHistogram borrowLatency = new LatencyHistogram();
+
+    // --- METRICS ---
+    private final Metrics metrics;
+    private final Metrics.Operation connectOp;
+    private final Metrics.Operation prepareOp;
+    private final Metrics.Operation queryOp;
+    private final Metrics.Operation updateOp;
+    private final Metrics.Operation batchOp;
+    private final Metrics.Operation executeOp;
+    private final Metrics.Operation commitOp;
+    private final Metrics.Operation rollbackOp;
+
+    ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+                   long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+        this(url, user, password, maxSize, borrowTimeoutMillis, idleTimeoutMillis, leakThresholdMillis,
+                statementCacheSize, new Metrics());
+    }
+
+    ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+                   long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize, Metrics metrics) {
+        if (maxSize < 1) throw new IllegalArgumentException("maxSize must be >= 1");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.metrics = metrics;
+        this.connectOp = metrics.operation("jdbc.connect");
+        this.prepareOp = metrics.operation("jdbc.prepare");
+        this.queryOp = metrics.operation("jdbc.executeQuery");
+        this.updateOp = metrics.operation("jdbc.executeUpdate");
+        this.batchOp = metrics.operation("jdbc.executeBatch");
+        this.executeOp = metrics.operation("jdbc.execute");
+        this.commitOp = metrics.operation("jdbc.commit");
+        this.rollbackOp = metrics.operation("jdbc.rollback");
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Metrics metrics() {
+        return metrics;
+    }
+
+    // ================= BORROW / RELEASE =================
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Connection conn = borrow(start);
+            failed = false;
+            return conn;
+        } finally {
+            connectOp.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Connection borrow(long start) throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection ("
+                        + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        totalWaitNanos.add(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeHealthyIdle();
+            if (pc == null) pc = openPhysical();
+            pc.markBorrowed(LEAK_TRACE && leakThresholdMillis > 0);
+            borrowed.add(pc);
+            borrows.increment();
+            borrowLatency.record(System.nanoTime() - start);
+            return pc.handle;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Opens up to `count` connections in parallel and parks them idle, so the first desk
+    // actions after startup don't each pay for a TCP + authentication handshake.
+    // Returns how many connections are idle afterwards.
+    int warmUp(int count) throws SQLException {
+        int target = Math.min(count, maxSize);
+        List<CompletableFuture<Connection>> opening = new ArrayList<>();
+        for (int i = 0; i < target; i++) {
+            opening.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getConnection();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        SQLException failure = null;
+        for (CompletableFuture<Connection> f : opening) {
+            try {
+                f.join().close();
+            } catch (CompletionException e) {
+                if (failure == null) failure = e.getCause() instanceof SQLException
+                        ? (SQLException) e.getCause() : new SQLException(e.getCause());
+            }
+        }
+        if (failure != null) throw failure;
+        return idle.size();
+    }
+
+    private PooledConnection takeHealthyIdle() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pc.lastUsedMillis < VALIDATE_AFTER_IDLE_MILLIS || pc.isValid()) {
+                return pc;
+            }
+            destroy(pc);
+        }
+        return null;
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Connection physical = metrics.time("jdbc.open", () -> DriverManager.getConnection(url, user, password));
+        physicalCount.incrementAndGet();
+        created.increment();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pc) {
+        if (!borrowed.remove(pc)) return;
+        try {
+            if (closed || !pc.resetForReuse()) {
+                destroy(pc);
+            } else {
+                pc.lastUsedMillis = System.currentTimeMillis();
+                idle.offerFirst(pc); // LIFO keeps the hottest connections (and their statement caches) busy
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        pc.closePhysical();
+        physicalCount.decrementAndGet();
+        destroyed.increment();
+    }
+
+    // ================= HOUSEKEEPING =================
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Idle eviction: walk from the cold end so the hot LIFO head is untouched.
+        if (idleTimeoutMillis > 0) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastUsedMillis > idleTimeoutMillis && idle.remove(pc)) {
+                    destroy(pc);
+                }
+            }
+        }
+
+        // Leak detection: report each long-held connection once, with where it was borrowed if traced.
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && now - pc.borrowedAtMillis > leakThresholdMillis) {
+                    pc.leakReported = true;
+                    leaks.increment();
+                    System.err.println("⚠ Possible connection leak: held for " + (now - pc.borrowedAtMillis) + " ms");
+                    if (pc.borrowSite != null) pc.borrowSite.printStackTrace();
+                    else System.err.println("  (run with -Dlibrary.pool.leakTrace=true to see where it was borrowed)");
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) destroy(pc);
+    }
+
+    // ================= STATS =================
+    Stats stats() {
+        return new Stats(borrowed.size(), idle.size(), physicalCount.get(), maxSize, permits.getQueueLength(),
+                borrows.sum(), created.sum(), destroyed.sum(), timeouts.sum(), leaks.sum(),
+                totalWaitNanos.sum(), statementHits.sum(), statementMisses.sum(), borrowLatency);
+    }
+
+    static final class Stats {
+        final int active;
+        final int idle;
+        final int total;
+        final int maxSize;
+        final int waiting;
+        final long borrows;
+        final long created;
+        final long destroyed;
+        final long timeouts;
+        final long leaks;
+        final long totalWaitNanos;
+        final long statementHits;
+        final long statementMisses;
+        final LatencyHistogram borrowLatency;
+
+        Stats(int active, int idle, int total, int maxSize, int waiting, long borrows, long created, long destroyed,
+              long timeouts, long leaks, long totalWaitNanos, long statementHits, long statementMisses,
+              LatencyHistogram borrowLatency) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.timeouts = timeouts;
+            this.leaks = leaks;
+            this.totalWaitNanos = totalWaitNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+            this.borrowLatency = borrowLatency;
+        }
+
+        double averageWaitMillis() {
+            return borrows == 0 ? 0 : LatencyHistogram.toMillis((double) totalWaitNanos / borrows);
+        }
+
+        @Override
+        public String toString() {
+            return "Connections: active=" + active + " idle=" + idle + " total=" + total + "/" + maxSize
+                    + " waiting=" + waiting + "\n"
+                    + "Lifecycle: borrows=" + borrows + " created=" + created + " destroyed=" + destroyed
+                    + " timeouts=" + timeouts + " leaks=" + leaks + "\n"
+                    + String.format("Average wait: %.3f ms%n", averageWaitMillis())
+                    + "Borrow latency: " + borrowLatency.summary() + "\n"
+                    + "Statement cache: hits=" + statementHits + " misses=" + statementMisses;
+        }
+    }
+
+    // ================= POOLED CONNECTION =================
+    private final class PooledConnection implements InvocationHandler {
+        final Connection physical;
+        final Connection handle;
+        final Map<String, PooledStatement> statements;
+        final int defaultIsolation;
+        final boolean defaultReadOnly;
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        volatile long borrowedAtMillis;
+        volatile boolean leakReported;
+        volatile Throwable borrowSite;
+        private volatile boolean handedOut;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.defaultReadOnly = physical.isReadOnly();
+            this.handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+            this.statements = new LinkedHashMap<String, PooledStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PooledStatement> eldest) {
+                    if (size() <= statementCacheSize) return false;
+                    PooledStatement evicted = eldest.getValue();
+                    if (evicted.inUse) evicted.evicted = true; // closed when its caller returns it
+                    else closeQuietly(evicted);
+                    return true;
+                }
+            };
+        }
+
+        void markBorrowed(boolean captureSite) {
+            borrowedAtMillis = System.currentTimeMillis();
+            leakReported = false;
+            borrowSite = captureSite ? new Throwable("Connection borrowed here") : null;
+            handedOut = true;
+        }
+
+        boolean isValid() {
+            try {
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // Undo whatever the borrower left behind so the next caller gets a clean connection:
+        // open transaction, isolation level, read-only flag and statements it never closed.
+        boolean resetForReuse() {
+            try {
+                if (physical.isClosed()) return false;
+                synchronized (statements) {
+                    for (PooledStatement ps : statements.values()) {
+                        if (ps.inUse) ps.giveBack();
+                    }
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.getTransactionIsolation() != defaultIsolation) {
+                    physical.setTransactionIsolation(defaultIsolation);
+                }
+                if (physical.isReadOnly() != defaultReadOnly) physical.setReadOnly(defaultReadOnly);
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            synchronized (statements) {
+                for (PooledStatement ps : statements.values()) closeQuietly(ps);
+                statements.clear();
+            }
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // already broken; nothing more to release
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (handedOut) {
+                        handedOut = false;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return !handedOut || physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(physical)) return physical;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    break;
+            }
+            if (!handedOut) throw new SQLException("Connection has already been returned to the pool");
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                case "createStatement":
+                    return timed(prepareOp, null, () -> {
+                        if (args != null && args.length == 1 && statementCacheSize > 0 && "prepareStatement".equals(method.getName())) {
+                            return cachedStatement((String) args[0]);
+                        }
+                        Statement stmt = (Statement) forward(physical, method, args);
+                        return wrap(stmt, method.getName().equals("createStatement") ? null : (String) args[0], false).proxy;
+                    });
+                case "commit":
+                    return timed(commitOp, null, () -> forward(physical, method, args));
+                case "rollback":
+                    return timed(rollbackOp, null, () -> forward(physical, method, args));
+                default:
+                    return forward(physical, method, args);
+            }
+        }
+
+        // The same SQL prepared twice in one borrow (e.g. a nested lookup while iterating a
+        // result) must not share a physical statement, so a busy entry yields an uncached copy.
+        private Statement cachedStatement(String sql) throws SQLException {
+            synchronized (statements) {
+                PooledStatement ps = statements.get(sql);
+                if (ps != null && !ps.physical.isClosed()) {
+                    if (ps.inUse) {
+                        statementMisses.increment();
+                        return wrap(physical.prepareStatement(sql), sql, false).proxy;
+                    }
+                    statementHits.increment();
+                    ps.inUse = true;
+                    return ps.proxy;
+                }
+                statementMisses.increment();
+                PooledStatement cached = wrap(physical.prepareStatement(sql), sql, true);
+                cached.inUse = true;
+                statements.put(sql, cached);
+                return cached.proxy;
+            }
+        }
+
+        private PooledStatement wrap(Statement stmt, String sql, boolean cached) {
+            Class<?> type = stmt instanceof CallableStatement ? CallableStatement.class
+                    : stmt instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            PooledStatement handler = new PooledStatement(stmt, this, sql, cached);
+            handler.proxy = (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+            return handler;
+        }
+    }
+
+    // ================= POOLED STATEMENT =================
+    // Times every execute call. A cached statement also stays open when the caller's
+    // try-with-resources closes it: close() just hands it back to the cache. One that was
+    // evicted while lent out is closed at that point instead. inUse and evicted are guarded
+    // by the owner's statements lock.
+    private final class PooledStatement implements InvocationHandler {
+        private final Statement physical;
+        private final PooledConnection owner;
+        private final String sql;
+        private final boolean cached;
+        Statement proxy;
+        boolean inUse;
+        boolean evicted;
+
+        PooledStatement(Statement physical, PooledConnection owner, String sql, boolean cached) {
+            this.physical = physical;
+            this.owner = owner;
+            this.sql = sql;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!cached) {
+                        physical.close();
+                    } else {
+                        synchronized (owner.statements) {
+                            if (inUse) giveBack();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    if (!cached) break;
+                    synchronized (owner.statements) {
+                        return !inUse || physical.isClosed();
+                    }
+                case "getConnection":
+                    return owner.handle;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute")) return forward(physical, method, args);
+            Metrics.Operation op = name.equals("executeQuery") ? queryOp
+                    : name.endsWith("Update") ? updateOp
+                    : name.endsWith("Batch") ? batchOp : executeOp;
+            // Plain Statements carry their SQL in the call; prepared ones were given it up front.
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            return timed(op, text, () -> forward(physical, method, args));
+        }
+
+        // Caller holds owner.statements.
+        void giveBack() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                physical.close();
+            } else if (!physical.isClosed()) {
+                java.sql.ResultSet open = physical.getResultSet();
+                if (open != null) open.close();
+                ((PreparedStatement) physical).clearParameters();
+            }
+        }
+
+        void closePhysical() throws SQLException {
+            physical.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invocation {
+        Object run() throws Throwable;
+    }
+
+    private Object timed(Metrics.Operation op, String sql, Invocation call) throws Throwable {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = call.run();
+            failed = false;
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (sql != null) metrics.statementFinished(op, sql, nanos, failed);
+            else op.record(nanos, failed);
+        }
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PooledStatement ps) {
+        try {
+            ps.closePhysical();
+        } catch (SQLException ignored) {
+            // statement is being discarded anyway
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Anything that can hand out a JDBC connection the caller closes when done
+// (the pool in production, a plain DriverManager lambda in benchmarks).
+@FunctionalInterface
+interface ConnectionSource {
+    Connection getConnection() throws SQLException;
+}
@@ -0,0 +1,43 @@
+package library;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+// ================= FINE RULE =================
+// The one place late fines are worked out: a flat amount per whole day past the due date.
+// Used by the return desk and by the nightly OverdueJob, so both always agree to the cent.
+// Money is BigDecimal with two decimals, never double.
+final class FineCalculator {
+
+    static final BigDecimal DEFAULT_DAILY_RATE = new BigDecimal("10.00");
+
+    static final FineCalculator DEFAULT = new FineCalculator(
+            new BigDecimal(System.getProperty("library.fine.dailyRate", DEFAULT_DAILY_RATE.toPlainString())));
+
+    private final BigDecimal dailyRate;
+
+    FineCalculator(BigDecimal dailyRate) {
+        if (dailyRate.signum() < 0) throw new IllegalArgumentException("dailyRate must not be negative");
+        this.dailyRate = dailyRate.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    BigDecimal dailyRate() {
+        return dailyRate;
+    }
+
+    // Whole days past the due date; 0 when returned (or assessed) on or before it.
+    static long daysOverdue(LocalDate dueDate, LocalDate asOf) {
+        return Math.max(0, ChronoUnit.DAYS.between(dueDate, asOf));
+    }
+
+    BigDecimal fineFor(LocalDate dueDate, LocalDate asOf) {
+        return fineForDays(daysOverdue(dueDate, asOf));
+    }
+
+    BigDecimal fineForDays(long daysOverdue) {
+        if (daysOverdue <= 0) return BigDecimal.ZERO.setScale(2);
+        return dailyRate.multiply(BigDecimal.valueOf(daysOverdue));
+    }
+}
@@ -0,0 +1,67 @@
+package library;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// ================= INSTANCE POOL =================
+// A few ready-to-use instances of something that is costly to set up and not thread-safe
+// (Mac, MessageDigest), shared by whichever threads need one. A ThreadLocal doesn't do this
+// once requests run on virtual threads: each request is a new thread, so it would set up a
+// fresh instance every time. Up to maxIdle instances are kept; under a burst, extra ones are
+// made and then dropped.
+final class InstancePool<T> {
+
+    static final int DEFAULT_MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    private final Supplier<T> factory;
+    private final ArrayBlockingQueue<T> idle;
+
+    InstancePool(int maxIdle, Supplier<T> factory) {
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+    }
+
+    // HMAC-SHA256 under key: the key schedule is set up once, and later instances are clones.
+    static InstancePool<Mac> hmacSha256(SecretKeySpec key) {
+        Mac prototype;
+        try {
+            prototype = Mac.getInstance("HmacSHA256");
+            prototype.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+        return new InstancePool<>(DEFAULT_MAX_IDLE, () -> {
+            synchronized (prototype) {
+                try {
+                    return (Mac) prototype.clone();
+                } catch (CloneNotSupportedException e) {
+                    try {
+                        Mac mac = Mac.getInstance(prototype.getAlgorithm(), prototype.getProvider());
+                        mac.init(key);
+                        return mac;
+                    } catch (GeneralSecurityException unavailable) {
+                        throw new IllegalStateException("HmacSHA256 unavailable", unavailable);
+                    }
+                }
+            }
+        });
+    }
+
+    // Runs work with an instance to itself. work must leave it reset (Mac.doFinal and
+    // MessageDigest.digest do); one that threw is not returned, as it may be half-updated.
+    <R> R apply(Function<T, R> work) {
+        T instance = idle.poll();
+        if (instance == null) instance = factory.get();
+        R result = work.apply(instance);
+        idle.offer(instance);
+        return result;
+    }
+
+    int idleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,371 @@
+package library;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// ================= CENTRAL DATABASE BACKEND =================
+// The desk operations against the central MySQL schema. Each call borrows its own connection;
+// statements go through call.watch(...) so a cancelled request stops its query on the server.
+// issueIn/returnIn run inside the caller's transaction and are shared with JournalReplay.
+final class JdbcLibraryRepository implements LibraryRepository {
+
+    private final ConnectionSource db;
+    private final BookCache books;
+    private final FineCalculator fines;
+
+    JdbcLibraryRepository(ConnectionSource db, BookCache books, FineCalculator fines) {
+        this.db = db;
+        this.books = books;
+        this.fines = fines;
+    }
+
+    // ================= CATALOG =================
+    // Keys come from an index-only scan; the rows themselves from the book cache.
+    @Override
+    public List<BookRow> catalogPage(int afterId, int limit, CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            int[] ids = new int[limit];
+            int count = 0;
+            try (PreparedStatement ps = watch(call, conn.prepareStatement(
+                    "SELECT book_id FROM books WHERE book_id > ? ORDER BY book_id LIMIT ?"))) {
+                ps.setInt(1, afterId);
+                ps.setInt(2, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids[count++] = rs.getInt(1);
+                }
+            }
+            Map<Integer, BookRow> found = books.getAll(conn, Arrays.copyOf(ids, count));
+            List<BookRow> page = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BookRow row = found.get(ids[i]);
+                if (row != null) page.add(row);
+            }
+            return page;
+        }
+    }
+
+    @Override
+    public BookRow findBook(int bookId, CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            return books.get(conn, bookId);
+        }
+    }
+
+    // ================= ISSUE BOOK =================
+    // Existence comes from the book cache first, so an unknown id never opens a transaction
+    // and a refused issue needs no extra query to explain itself.
+    @Override
+    public CirculationService.IssueResult issue(int bookId, int memberId, LocalDate issueDate, LocalDate dueDate,
+                                                CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            BookRow known = books.get(conn, bookId);
+            if (known == null) return new CirculationService.IssueResult(CirculationService.IssueOutcome.NOT_FOUND, null, null);
+
+            CirculationService.IssueResult result = CirculationService.inTransaction(conn,
+                    () -> issueIn(conn, call, bookId, memberId, issueDate, dueDate));
+            if (result.outcome != CirculationService.IssueOutcome.ISSUED && !"Issued".equals(known.status)) {
+                books.invalidate(bookId); // cache was behind; reload next time
+            }
+            return result;
+        }
+    }
+
+    // The conditional UPDATE is the availability check: it locks the row and only one desk
+    // can flip it from 'Available', so two desks can never both open a loan for the same copy.
+    static CirculationService.IssueResult issueIn(Connection conn, CirculationService.Call<?> call, int bookId,
+                                                  int memberId, LocalDate issueDate, LocalDate dueDate) throws SQLException {
+        try (PreparedStatement updateStmt = watch(call, conn.prepareStatement(
+                "UPDATE books SET status = 'Issued' WHERE book_id = ? AND status = 'Available'"))) {
+            updateStmt.setInt(1, bookId);
+            if (updateStmt.executeUpdate() == 0) {
+                return new CirculationService.IssueResult(CirculationService.IssueOutcome.ALREADY_ISSUED, null, null);
+            }
+        }
+
+        try (PreparedStatement transStmt = watch(call, conn.prepareStatement(
+                "INSERT INTO transactions (book_id, member_id, issue_date, due_date) VALUES (?, ?, ?, ?)"))) {
+            transStmt.setInt(1, bookId);
+            transStmt.setInt(2, memberId);
+            transStmt.setDate(3, java.sql.Date.valueOf(issueDate));
+            transStmt.setDate(4, java.sql.Date.valueOf(dueDate));
+            transStmt.executeUpdate();
+        }
+        TitleRow counts = TitleInventory.copyStatusChanged(conn, bookId, "Issued");
+        return new CirculationService.IssueResult(CirculationService.IssueOutcome.ISSUED, dueDate, counts);
+    }
+
+    // ================= RETURN BOOK =================
+    @Override
+    public CirculationService.ReturnResult returnBook(int bookId, LocalDate returnDate, CirculationService.Call<?> call)
+            throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            CirculationService.ReturnResult result = CirculationService.inTransaction(conn,
+                    () -> returnIn(conn, call, bookId, returnDate, fines));
+            if (!result.returned) books.invalidate(bookId);
+            return result;
+        }
+    }
+
+    // The copy's row is locked and its open loan found before anything is written, so a refused
+    // return leaves nothing to undo and the caller's transaction (a desk return, or a journal
+    // replay that also records its position) is never rolled back from in here. Rows are locked
+    // `books` first, then `transactions`, then `copies` and `titles` (see TitleInventory), the
+    // same order as issue, so the two can't deadlock each other.
+    static CirculationService.ReturnResult returnIn(Connection conn, CirculationService.Call<?> call, int bookId,
+                                                    LocalDate returnDate, FineCalculator fines) throws SQLException {
+        return returnIn(conn, call, bookId, null, returnDate, null, fines);
+    }
+
+    // Journal replay: closes the open loan only if it belongs to memberId (when known), and
+    // records the fine the branch already charged instead of pricing it again.
+    static CirculationService.ReturnResult returnIn(Connection conn, CirculationService.Call<?> call, int bookId,
+                                                    Integer memberId, LocalDate returnDate, BigDecimal agreedFine,
+                                                    FineCalculator fines) throws SQLException {
+        try (PreparedStatement lockStmt = watch(call, conn.prepareStatement(
+                "SELECT status FROM books WHERE book_id = ? FOR UPDATE"))) {
+            lockStmt.setInt(1, bookId);
+            try (ResultSet rs = lockStmt.executeQuery()) {
+                if (!rs.next() || !"Issued".equals(rs.getString(1))) {
+                    return new CirculationService.ReturnResult(false, BigDecimal.ZERO, null);
+                }
+            }
+        }
+
+        int transId;
+        LocalDate dueDate;
+        try (PreparedStatement findStmt = watch(call, conn.prepareStatement(
+                "SELECT trans_id, due_date, member_id FROM transactions WHERE book_id = ? AND return_date IS NULL"))) {
+            findStmt.setInt(1, bookId);
+            try (ResultSet rs = findStmt.executeQuery()) {
+                // Marked Issued without an open loan, or on loan to someone else: leave the copy untouched.
+                if (!rs.next()) return new CirculationService.ReturnResult(false, BigDecimal.ZERO, null);
+                if (memberId != null && memberId != rs.getInt("member_id")) {
+                    return new CirculationService.ReturnResult(false, BigDecimal.ZERO, null);
+                }
+                transId = rs.getInt("trans_id");
+                dueDate = rs.getDate("due_date").toLocalDate();
+            }
+        }
+
+        BigDecimal fine = agreedFine != null ? agreedFine : fines.fineFor(dueDate, returnDate);
+
+        try (PreparedStatement upBookStmt = watch(call, conn.prepareStatement(
+                "UPDATE books SET status = 'Available' WHERE book_id = ? AND status = 'Issued'"));
+             PreparedStatement upTransStmt = watch(call, conn.prepareStatement(
+                     "UPDATE transactions SET return_date = ?, fine_amount = ? WHERE trans_id = ? AND return_date IS NULL"))) {
+            upBookStmt.setInt(1, bookId);
+            upTransStmt.setDate(1, java.sql.Date.valueOf(returnDate));
+            upTransStmt.setBigDecimal(2, fine);
+            upTransStmt.setInt(3, transId);
+            // Both rows were checked under lock; a miss here means the lock did not hold, and the
+            // whole transaction is rolled back by its owner.
+            if (upBookStmt.executeUpdate() != 1 || upTransStmt.executeUpdate() != 1) {
+                throw new SQLException("Copy " + bookId + " changed during its return");
+            }
+        }
+        TitleRow counts = TitleInventory.copyStatusChanged(conn, bookId, "Available");
+        return new CirculationService.ReturnResult(true, fine, counts);
+    }
+
+    // ================= SCAN SESSIONS =================
+    // A whole armful in one transaction: one locking IN (...) read decides which copies can go,
+    // then one batch per table. Rows are locked in book_id order, books before transactions,
+    // copies and titles, the same order as a single issue or return.
+    @Override
+    public BatchReceipt issueAll(int[] bookIds, int memberId, LocalDate issueDate, LocalDate dueDate,
+                                 CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            return forgetRefused(CirculationService.inTransaction(conn, () -> {
+                Map<Integer, BookRow> current = lockBooks(conn, call, bookIds);
+                List<BatchReceipt.Line> lines = new ArrayList<>(bookIds.length);
+                int[] issuing = new int[bookIds.length];
+                int n = 0;
+                for (int bookId : bookIds) {
+                    BookRow row = current.get(bookId);
+                    if (row == null) {
+                        lines.add(new BatchReceipt.Line(bookId, null, "unknown copy", null, null));
+                    } else if (!"Available".equals(row.status)) {
+                        lines.add(new BatchReceipt.Line(bookId, row.title, "already issued", null, null));
+                    } else {
+                        lines.add(new BatchReceipt.Line(bookId, row.title, null, dueDate, null));
+                        issuing[n++] = bookId;
+                    }
+                }
+                issuing = Arrays.copyOf(issuing, n);
+                if (n > 0) {
+                    setStatus(conn, call, issuing, "Issued");
+                    try (PreparedStatement ps = watch(call, conn.prepareStatement(
+                            "INSERT INTO transactions (book_id, member_id, issue_date, due_date) VALUES (?, ?, ?, ?)"))) {
+                        for (int bookId : issuing) {
+                            ps.setInt(1, bookId);
+                            ps.setInt(2, memberId);
+                            ps.setDate(3, java.sql.Date.valueOf(issueDate));
+                            ps.setDate(4, java.sql.Date.valueOf(dueDate));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                List<TitleRow> titles = TitleInventory.copiesStatusChanged(conn, issuing, "Issued");
+                return new BatchReceipt(BatchReceipt.Kind.CHECKOUT, memberId, issueDate, lines, titles);
+            }));
+        }
+    }
+
+    @Override
+    public BatchReceipt returnAll(int[] bookIds, LocalDate returnDate, CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            return forgetRefused(CirculationService.inTransaction(conn, () -> {
+                Map<Integer, BookRow> current = lockBooks(conn, call, bookIds);
+                Map<Integer, Integer> loanIds = new HashMap<>();
+                Map<Integer, LocalDate> dueDates = new HashMap<>();
+                try (PreparedStatement ps = watch(call, conn.prepareStatement(
+                        "SELECT book_id, trans_id, due_date FROM transactions WHERE return_date IS NULL AND book_id IN ("
+                                + placeholders(bookIds.length) + ")"))) {
+                    for (int i = 0; i < bookIds.length; i++) ps.setInt(i + 1, bookIds[i]);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            loanIds.put(rs.getInt(1), rs.getInt(2));
+                            dueDates.put(rs.getInt(1), rs.getDate(3).toLocalDate());
+                        }
+                    }
+                }
+
+                List<BatchReceipt.Line> lines = new ArrayList<>(bookIds.length);
+                int[] returning = new int[bookIds.length];
+                BigDecimal[] owed = new BigDecimal[bookIds.length];
+                int n = 0;
+                for (int bookId : bookIds) {
+                    BookRow row = current.get(bookId);
+                    if (row == null) {
+                        lines.add(new BatchReceipt.Line(bookId, null, "unknown copy", null, null));
+                    } else if (!"Issued".equals(row.status)) {
+                        lines.add(new BatchReceipt.Line(bookId, row.title, "not on loan", null, null));
+                    } else if (!loanIds.containsKey(bookId)) {
+                        // marked Issued without an open loan; leave it for staff to look at
+                        lines.add(new BatchReceipt.Line(bookId, row.title, "no open loan on record", null, null));
+                    } else {
+                        owed[n] = fines.fineFor(dueDates.get(bookId), returnDate);
+                        lines.add(new BatchReceipt.Line(bookId, row.title, null, null, owed[n]));
+                        returning[n++] = bookId;
+                    }
+                }
+                returning = Arrays.copyOf(returning, n);
+                if (n > 0) {
+                    setStatus(conn, call, returning, "Available");
+                    try (PreparedStatement ps = watch(call, conn.prepareStatement(
+                            "UPDATE transactions SET return_date = ?, fine_amount = ? WHERE trans_id = ? AND return_date IS NULL"))) {
+                        for (int i = 0; i < n; i++) {
+                            ps.setDate(1, java.sql.Date.valueOf(returnDate));
+                            ps.setBigDecimal(2, owed[i]);
+                            ps.setInt(3, loanIds.get(returning[i]));
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                List<TitleRow> titles = TitleInventory.copiesStatusChanged(conn, returning, "Available");
+                return new BatchReceipt(BatchReceipt.Kind.RETURN, 0, returnDate, lines, titles);
+            }));
+        }
+    }
+
+    // The single validating read: current rows of the scanned copies, locked until commit.
+    private static Map<Integer, BookRow> lockBooks(Connection conn, CirculationService.Call<?> call, int[] bookIds)
+            throws SQLException {
+        Map<Integer, BookRow> rows = new HashMap<>();
+        try (PreparedStatement ps = watch(call, conn.prepareStatement(
+                "SELECT book_id, title, author, category, status FROM books WHERE book_id IN ("
+                        + placeholders(bookIds.length) + ") ORDER BY book_id FOR UPDATE"))) {
+            for (int i = 0; i < bookIds.length; i++) ps.setInt(i + 1, bookIds[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.put(rs.getInt(1), new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getString(4), rs.getString(5)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // A refused copy may mean the cache was behind; reload it next time.
+    private BatchReceipt forgetRefused(BatchReceipt receipt) {
+        for (BatchReceipt.Line line : receipt.lines) if (!line.done()) books.invalidate(line.bookId);
+        return receipt;
+    }
+
+    // The rows are locked and were checked by lockBooks, so every update here lands.
+    private static void setStatus(Connection conn, CirculationService.Call<?> call, int[] bookIds, String status)
+            throws SQLException {
+        try (PreparedStatement ps = watch(call, conn.prepareStatement("UPDATE books SET status = ? WHERE book_id = ?"))) {
+            for (int bookId : bookIds) {
+                ps.setString(1, status);
+                ps.setInt(2, bookId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) sb.append(i == 0 ? "?" : ", ?");
+        return sb.toString();
+    }
+
+    // ================= USERS =================
+    @Override
+    public Credential findCredential(String username, CirculationService.Call<?> call) throws SQLException {
+        try (Connection conn = db.getConnection();
+             PreparedStatement ps = watch(call, conn.prepareStatement("SELECT password_hash, role FROM users WHERE username = ?"))) {
+            ps.setString(1, username);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Credential(rs.getString(1), rs.getString(2)) : null;
+            }
+        }
+    }
+
+    @Override
+    public boolean replacePasswordHash(String username, String expectedHash, String newHash, CirculationService.Call<?> call)
+            throws SQLException {
+        try (Connection conn = db.getConnection()) {
+            return replacePasswordHashIn(conn, call, username, expectedHash, newHash);
+        }
+    }
+
+    static boolean replacePasswordHashIn(Connection conn, CirculationService.Call<?> call, String username,
+                                         String expectedHash, String newHash) throws SQLException {
+        String sql = "UPDATE users SET password_hash = ? WHERE username = ?" + (expectedHash == null ? "" : " AND password_hash = ?");
+        try (PreparedStatement ps = watch(call, conn.prepareStatement(sql))) {
+            ps.setString(1, newHash);
+            ps.setString(2, username);
+            if (expectedHash != null) ps.setString(3, expectedHash);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    // Replay has no desk request to cancel.
+    private static <S extends Statement> S watch(CirculationService.Call<?> call, S stmt) {
+        return call == null ? stmt : call.watch(stmt);
+    }
+
+    @Override
+    public void close() {
+        // connections belong to the pool
+    }
+
+    @Override
+    public String toString() {
+        return "Storage: central database";
+    }
+}
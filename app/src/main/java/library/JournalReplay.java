@@ -0,0 +1,135 @@
+package library;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// ================= JOURNAL REPLAY =================
+// Applies the changes a branch made on its journal to the central database, oldest first, one
+// transaction each, through the same statements the desk uses (JdbcLibraryRepository).
+// How far this branch has got is kept centrally in data_migrations under "journal:<branch id>"
+// and moved in the same transaction as the change, so a replay that is interrupted, or run a
+// second time, never applies anything twice.
+//
+// A change the centre can no longer take (the copy was issued or returned elsewhere meanwhile,
+// the password was reset centrally) is passed over and listed as a conflict for staff to settle.
+// A return only closes the central loan of the member the branch lent the copy to, at the fine
+// the branch charged, and a return whose issue was a conflict earlier in the run is one too:
+// the loan it ends was never recorded centrally.
+final class JournalReplay {
+
+    static final class Report {
+        int applied;
+        int alreadyApplied;
+        final List<String> conflicts = new ArrayList<>();
+        long elapsedNanos;
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%d changes applied, %d already applied, %d conflicts, %d ms",
+                    applied, alreadyApplied, conflicts.size(), elapsedNanos / 1_000_000));
+            for (String conflict : conflicts) sb.append("\n  conflict: ").append(conflict);
+            return sb.toString();
+        }
+    }
+
+    private JournalReplay() {
+    }
+
+    static Report run(JournalRepository journal, ConnectionSource db, FineCalculator fines) throws SQLException, IOException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        String name = "journal:" + journal.branchId();
+        List<JournalRepository.Change> changes = journal.pendingChanges();
+        long last = 0;
+        Set<Integer> unrecordedLoans = new HashSet<>(); // copies whose branch issue was a conflict
+        try (Connection conn = db.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO data_migrations (name) VALUES (?)")) {
+                ps.setString(1, name);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                if (!SchemaMigrator.isDuplicateKey(e)) throw e;
+            }
+
+            for (JournalRepository.Change change : changes) {
+                String[] conflict = new String[1];
+                boolean fresh = CirculationService.inTransaction(conn, () -> {
+                    conflict[0] = null;
+                    if (change.seq <= position(conn, name)) return false;
+                    conflict[0] = apply(conn, change, fines, unrecordedLoans);
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE data_migrations SET position = ? WHERE name = ?")) {
+                        ps.setLong(1, change.seq);
+                        ps.setString(2, name);
+                        ps.executeUpdate();
+                    }
+                    return true;
+                });
+                if (!fresh) {
+                    report.alreadyApplied++;
+                } else if (conflict[0] != null) {
+                    report.conflicts.add(conflict[0]);
+                    if (change.type == JournalRepository.ISSUE) unrecordedLoans.add(change.number(0));
+                    else if (change.type == JournalRepository.RETURN) unrecordedLoans.remove(change.number(0));
+                } else {
+                    report.applied++;
+                }
+                last = change.seq;
+            }
+        } finally {
+            report.elapsedNanos = System.nanoTime() - start;
+        }
+        if (last > 0) journal.acknowledge(last);
+        return report;
+    }
+
+    // Locks this branch's row, so two replays of the same journal take turns.
+    private static long position(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT position FROM data_migrations WHERE name = ? FOR UPDATE")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    // Returns why the change could not be applied, or null once it has been.
+    private static String apply(Connection conn, JournalRepository.Change change, FineCalculator fines,
+                                Set<Integer> unrecordedLoans) throws SQLException {
+        switch (change.type) {
+            case JournalRepository.ISSUE: {
+                CirculationService.IssueResult result = JdbcLibraryRepository.issueIn(conn, null,
+                        change.number(0), change.number(1), change.date(2), change.date(3));
+                return result.outcome == CirculationService.IssueOutcome.ISSUED ? null
+                        : "copy " + change.number(0) + " is not available centrally; loan to member "
+                        + change.number(1) + " on " + change.date(2) + " not recorded";
+            }
+            case JournalRepository.RETURN: {
+                int bookId = change.number(0);
+                Integer memberId = change.optionalNumber(3); // null in journals from before members were kept
+                String what = "return of copy " + bookId + (memberId == null ? "" : " by member " + memberId)
+                        + " on " + change.date(1) + " (fine " + change.text(2) + ") not recorded";
+                if (unrecordedLoans.contains(bookId)) {
+                    return "the branch loan of copy " + bookId + " was not recorded centrally; " + what;
+                }
+                CirculationService.ReturnResult result = JdbcLibraryRepository.returnIn(conn, null,
+                        bookId, memberId, change.date(1), new BigDecimal(change.text(2)), fines);
+                return result.returned ? null
+                        : "copy " + bookId + " has no open loan " + (memberId == null ? "" : "for member " + memberId + " ")
+                        + "centrally; " + what;
+            }
+            case JournalRepository.PASSWORD:
+                return JdbcLibraryRepository.replacePasswordHashIn(conn, null, change.text(0), change.text(1), change.text(2))
+                        ? null : "password for '" + change.text(0) + "' was changed centrally; branch change not applied";
+            default:
+                throw new IllegalStateException("unknown change " + change);
+        }
+    }
+}
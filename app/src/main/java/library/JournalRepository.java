@@ -0,0 +1,662 @@
+package library;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// ================= BRANCH JOURNAL =================
+// Embedded backend for a branch that has lost its link to the central database. Everything
+// lives in one append-only file, <dir>/journal.log, read back into memory on open:
+//
+//   H branch-id                 first line; names this branch's replay position centrally
+//   B book / U user / L loan    snapshot of the centre, written by snapshot()
+//   I issue / R return / P password   changes made here, numbered 1, 2, 3, ...
+//   T count                     the next count changes are one scan session
+//   A seq                       changes up to seq have been replayed into the centre
+//
+// L and R lines carry the borrowing member, so a replayed return only closes that member's
+// loan centrally; journals written before that have \N there.
+//
+// Reads are served from in-memory maps. A change is appended (and fsynced, unless
+// -Dlibrary.journal.sync=false) before it is applied in memory, so whatever a desk was told
+// has succeeded survives a crash. Every line ends with a CRC32; a torn last line left by a
+// crash mid-write is dropped on the next open, and so is the rest of a session cut short.
+//
+// The log is written through a FileOutputStream, not a FileChannel: cancelling a desk request
+// interrupts its thread, and an interrupt closes an interruptible channel for good.
+final class JournalRepository implements LibraryRepository {
+
+    static final String FILE_NAME = "journal.log";
+    private static final String LOCK_NAME = "journal.lock";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    static final char ISSUE = 'I';
+    static final char RETURN = 'R';
+    static final char PASSWORD = 'P';
+
+    // One change made at the branch: its type letter, sequence number and fields.
+    static final class Change {
+        final long seq;
+        final char type;
+        private final String[] fields;
+
+        Change(long seq, char type, String... fields) {
+            this.seq = seq;
+            this.type = type;
+            this.fields = fields;
+        }
+
+        String text(int i) {
+            return fields[i];
+        }
+
+        int number(int i) {
+            return Integer.parseInt(fields[i]);
+        }
+
+        // Null when the field is \N or the line predates it.
+        Integer optionalNumber(int i) {
+            return i < fields.length && fields[i] != null ? Integer.valueOf(fields[i]) : null;
+        }
+
+        LocalDate date(int i) {
+            return LocalDate.parse(fields[i]);
+        }
+
+        private String[] line() {
+            String[] line = new String[fields.length + 2];
+            line[0] = String.valueOf(type);
+            line[1] = Long.toString(seq);
+            System.arraycopy(fields, 0, line, 2, fields.length);
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + seq + " " + type + " " + String.join(" ", Arrays.asList(fields));
+        }
+    }
+
+    private final Path file;
+    private final FineCalculator fines;
+    private final boolean sync;
+    private final RandomAccessFile lockFile;
+    private final FileLock fileLock;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // --- state rebuilt from the file (guarded by lock) ---
+    private String branchId;
+    private final TreeMap<Integer, BookRow> books = new TreeMap<>();
+    private final Map<String, Credential> users = new HashMap<>();
+    private final Map<Integer, LocalDate> dueDates = new HashMap<>(); // open loans: book id -> due date
+    private final Map<Integer, Integer> borrowers = new HashMap<>();  // open loans: book id -> member id, where known
+    private final List<Change> pending = new ArrayList<>(); // not yet replayed into the centre
+    private long lastSeq;
+    private FileOutputStream out;
+    private IOException failed; // a write that may have left half a line; nothing more is written
+    private boolean closed;
+
+    private JournalRepository(Path dir, FineCalculator fines, boolean sync) throws IOException {
+        this.file = dir.resolve(FILE_NAME);
+        this.fines = fines;
+        this.sync = sync;
+        this.lockFile = new RandomAccessFile(dir.resolve(LOCK_NAME).toFile(), "rw");
+        FileLock taken;
+        try {
+            taken = lockFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException e) {
+            taken = null;
+        }
+        if (taken == null) {
+            lockFile.close();
+            throw new IOException("Journal " + dir + " is in use by another desk process");
+        }
+        this.fileLock = taken;
+        try {
+            if (!Files.exists(file)) {
+                try (FileOutputStream fresh = new FileOutputStream(file.toFile())) {
+                    fresh.write(encode("H", UUID.randomUUID().toString()));
+                    fresh.getFD().sync();
+                }
+            }
+            load();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Opens (or starts) the journal in dir. Only one process may have it open.
+    static JournalRepository open(Path dir, FineCalculator fines) throws IOException {
+        Files.createDirectories(dir);
+        return new JournalRepository(dir, fines,
+                Boolean.parseBoolean(System.getProperty("library.journal.sync", "true")));
+    }
+
+    // ================= READS =================
+    @Override
+    public List<BookRow> catalogPage(int afterId, int limit, CirculationService.Call<?> call) {
+        lock.readLock().lock();
+        try {
+            List<BookRow> page = new ArrayList<>(Math.min(limit, books.size()));
+            for (BookRow row : books.tailMap(afterId, false).values()) {
+                if (page.size() == limit) break;
+                page.add(row);
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public BookRow findBook(int bookId, CirculationService.Call<?> call) {
+        lock.readLock().lock();
+        try {
+            return books.get(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Credential findCredential(String username, CirculationService.Call<?> call) {
+        lock.readLock().lock();
+        try {
+            return users.get(username);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================= CHANGES =================
+    @Override
+    public CirculationService.IssueResult issue(int bookId, int memberId, LocalDate issueDate, LocalDate dueDate,
+                                                CirculationService.Call<?> call) throws IOException {
+        lock.writeLock().lock();
+        try {
+            BookRow row = books.get(bookId);
+            if (row == null) return new CirculationService.IssueResult(CirculationService.IssueOutcome.NOT_FOUND, null, null);
+            if (!"Available".equals(row.status)) {
+                return new CirculationService.IssueResult(CirculationService.IssueOutcome.ALREADY_ISSUED, null, null);
+            }
+            record(new Change(lastSeq + 1, ISSUE, Integer.toString(bookId), Integer.toString(memberId),
+                    issueDate.toString(), dueDate.toString()));
+            return new CirculationService.IssueResult(CirculationService.IssueOutcome.ISSUED, dueDate, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CirculationService.ReturnResult returnBook(int bookId, LocalDate returnDate, CirculationService.Call<?> call)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            BookRow row = books.get(bookId);
+            LocalDate dueDate = dueDates.get(bookId);
+            if (row == null || !"Issued".equals(row.status) || dueDate == null) {
+                return new CirculationService.ReturnResult(false, BigDecimal.ZERO, null);
+            }
+            BigDecimal fine = fines.fineFor(dueDate, returnDate);
+            record(new Change(lastSeq + 1, RETURN, Integer.toString(bookId), returnDate.toString(), fine.toPlainString(),
+                    borrower(bookId)));
+            return new CirculationService.ReturnResult(true, fine, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ================= SCAN SESSIONS =================
+    // The session's changes go to disk as one group with one fsync, and count as one on open:
+    // all of them or none.
+    @Override
+    public BatchReceipt issueAll(int[] bookIds, int memberId, LocalDate issueDate, LocalDate dueDate,
+                                 CirculationService.Call<?> call) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<BatchReceipt.Line> lines = new ArrayList<>(bookIds.length);
+            List<Change> changes = new ArrayList<>(bookIds.length);
+            for (int bookId : bookIds) {
+                BookRow row = books.get(bookId);
+                if (row == null) {
+                    lines.add(new BatchReceipt.Line(bookId, null, "unknown copy", null, null));
+                } else if (!"Available".equals(row.status)) {
+                    lines.add(new BatchReceipt.Line(bookId, row.title, "already issued", null, null));
+                } else {
+                    lines.add(new BatchReceipt.Line(bookId, row.title, null, dueDate, null));
+                    changes.add(new Change(lastSeq + 1 + changes.size(), ISSUE, Integer.toString(bookId),
+                            Integer.toString(memberId), issueDate.toString(), dueDate.toString()));
+                }
+            }
+            record(changes);
+            return new BatchReceipt(BatchReceipt.Kind.CHECKOUT, memberId, issueDate, lines, new ArrayList<>());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BatchReceipt returnAll(int[] bookIds, LocalDate returnDate, CirculationService.Call<?> call) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<BatchReceipt.Line> lines = new ArrayList<>(bookIds.length);
+            List<Change> changes = new ArrayList<>(bookIds.length);
+            for (int bookId : bookIds) {
+                BookRow row = books.get(bookId);
+                LocalDate dueDate = dueDates.get(bookId);
+                if (row == null) {
+                    lines.add(new BatchReceipt.Line(bookId, null, "unknown copy", null, null));
+                } else if (!"Issued".equals(row.status)) {
+                    lines.add(new BatchReceipt.Line(bookId, row.title, "not on loan", null, null));
+                } else if (dueDate == null) {
+                    lines.add(new BatchReceipt.Line(bookId, row.title, "no open loan on record", null, null));
+                } else {
+                    BigDecimal fine = fines.fineFor(dueDate, returnDate);
+                    lines.add(new BatchReceipt.Line(bookId, row.title, null, null, fine));
+                    changes.add(new Change(lastSeq + 1 + changes.size(), RETURN, Integer.toString(bookId),
+                            returnDate.toString(), fine.toPlainString(), borrower(bookId)));
+                }
+            }
+            record(changes);
+            return new BatchReceipt(BatchReceipt.Kind.RETURN, 0, returnDate, lines, new ArrayList<>());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // The expected hash travels with the change, so a replay can't undo a reset made centrally.
+    @Override
+    public boolean replacePasswordHash(String username, String expectedHash, String newHash, CirculationService.Call<?> call)
+            throws IOException {
+        lock.writeLock().lock();
+        try {
+            Credential current = users.get(username);
+            if (current == null || (expectedHash != null && !expectedHash.equals(current.hash))) return false;
+            record(new Change(lastSeq + 1, PASSWORD, username, expectedHash, newHash));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock. Written first, applied second: a failed write changes nothing.
+    private void record(Change change) throws IOException {
+        append(encode(change.line()));
+        apply(change);
+    }
+
+    // Several changes behind a "T count" line, in one write and one fsync.
+    private void record(List<Change> changes) throws IOException {
+        if (changes.size() <= 1) {
+            for (Change change : changes) record(change);
+            return;
+        }
+        ByteArrayOutputStream group = new ByteArrayOutputStream(64 * (changes.size() + 1));
+        group.write(encode("T", Integer.toString(changes.size())));
+        for (Change change : changes) group.write(encode(change.line()));
+        append(group.toByteArray());
+        for (Change change : changes) apply(change);
+    }
+
+    private String borrower(int bookId) {
+        Integer memberId = borrowers.get(bookId);
+        return memberId == null ? null : memberId.toString();
+    }
+
+    private void apply(Change change) {
+        switch (change.type) {
+            case ISSUE: {
+                int bookId = change.number(0);
+                books.computeIfPresent(bookId, (id, row) -> row.withStatus("Issued"));
+                dueDates.put(bookId, change.date(3));
+                borrowers.put(bookId, change.number(1));
+                break;
+            }
+            case RETURN: {
+                int bookId = change.number(0);
+                books.computeIfPresent(bookId, (id, row) -> row.withStatus("Available"));
+                dueDates.remove(bookId);
+                borrowers.remove(bookId);
+                break;
+            }
+            default: // PASSWORD
+                users.computeIfPresent(change.text(0), (name, c) -> new Credential(change.text(2), c.role));
+                break;
+        }
+        pending.add(change);
+        lastSeq = change.seq;
+    }
+
+    // ================= REPLAY SUPPORT =================
+    String branchId() {
+        lock.readLock().lock();
+        try {
+            return branchId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Changes made here that the centre hasn't seen yet, oldest first.
+    List<Change> pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(pending);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Notes that every change up to seq has been applied centrally.
+    void acknowledge(long seq) throws IOException {
+        lock.writeLock().lock();
+        try {
+            append(encode("A", Long.toString(seq)));
+            acknowledged(seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void acknowledged(long seq) {
+        pending.removeIf(c -> c.seq <= seq);
+        lastSeq = Math.max(lastSeq, seq);
+    }
+
+    // ================= SNAPSHOT =================
+    // Replaces the journal with a fresh copy of the centre's catalog, users and open loans,
+    // read in one repeatable-read transaction. Refused while changes made here are still
+    // waiting for replay. Returns the number of copies taken.
+    int snapshot(Connection conn) throws SQLException, IOException {
+        lock.writeLock().lock();
+        try {
+            if (!pending.isEmpty()) {
+                throw new IllegalStateException(pending.size() + " branch changes have not been replayed yet");
+            }
+            Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+            int copies = 0;
+            boolean autoCommit = conn.getAutoCommit();
+            int isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+                 OutputStream w = new BufferedOutputStream(fos, 1 << 16)) {
+                w.write(encode("H", branchId));
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT book_id, title, author, category, status FROM books ORDER BY book_id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(1_000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            w.write(encode("B", rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                            copies++;
+                        }
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement("SELECT username, password_hash, role FROM users");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) w.write(encode("U", rs.getString(1), rs.getString(2), rs.getString(3)));
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT book_id, due_date, member_id FROM transactions WHERE return_date IS NULL");
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        w.write(encode("L", rs.getString(1), rs.getDate(2).toLocalDate().toString(), rs.getString(3)));
+                    }
+                }
+                // Numbering carries on where it was: the centre remembers how far it has replayed.
+                w.write(encode("A", Long.toString(lastSeq)));
+                w.flush();
+                fos.getFD().sync();
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(autoCommit);
+                conn.setTransactionIsolation(isolation);
+            }
+            // The log is closed for the move (Windows won't replace an open file) and reopened
+            // whether or not the move worked: a failed move leaves the old journal in place.
+            out.close();
+            out = null;
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                load();
+            }
+            return copies;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ================= FILE FORMAT =================
+    // Tab-separated fields (tab, newline, CR and backslash escaped, \N for null), then a tab
+    // and the CRC32 of everything before it in hex.
+    private void load() throws IOException {
+        books.clear();
+        users.clear();
+        dueDates.clear();
+        borrowers.clear();
+        pending.clear();
+        branchId = null;
+        lastSeq = 0;
+        failed = null;
+
+        long good = 0; // end of the last intact line (or session)
+        long offset = 0;
+        int lineNo = 0;
+        boolean torn = false;
+        List<String[]> group = new ArrayList<>(); // lines of an unfinished session
+        int groupLeft = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buf = new byte[1 << 16];
+            byte[] line = new byte[256];
+            int length = 0;
+            int n;
+            scan:
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    offset++;
+                    if (buf[i] != '\n') {
+                        if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                        line[length++] = buf[i];
+                        continue;
+                    }
+                    lineNo++;
+                    String[] fields = decode(line, length);
+                    length = 0;
+                    if (fields == null) {
+                        if (i + 1 < n || in.read() != -1) throw new IOException(file + " is corrupt at line " + lineNo);
+                        torn = true;
+                        break scan;
+                    }
+                    if (groupLeft > 0) {
+                        group.add(fields);
+                        if (--groupLeft > 0) continue;
+                        for (String[] grouped : group) load(grouped, lineNo);
+                        group.clear();
+                    } else if (fields[0].equals("T")) {
+                        groupLeft = Integer.parseInt(fields[1]);
+                        continue;
+                    } else {
+                        load(fields, lineNo);
+                    }
+                    good = offset;
+                }
+            }
+            if (length > 0 || groupLeft > 0) torn = true; // last line never got its newline, or a session was cut short
+        }
+        if (branchId == null) throw new IOException(file + " has no header line");
+        if (torn) {
+            System.err.println("Journal " + file + ": dropping a torn write after line " + lineNo + " (crash mid-write).");
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(good);
+                raf.getFD().sync();
+            }
+        }
+        out = new FileOutputStream(file.toFile(), true);
+    }
+
+    private void load(String[] f, int lineNo) throws IOException {
+        try {
+            switch (f[0]) {
+                case "H":
+                    branchId = f[1];
+                    break;
+                case "B":
+                    books.put(Integer.parseInt(f[1]), new BookRow(Integer.parseInt(f[1]), f[2], f[3], f[4], f[5]));
+                    break;
+                case "U":
+                    users.put(f[1], new Credential(f[2], f[3]));
+                    break;
+                case "L":
+                    dueDates.put(Integer.parseInt(f[1]), LocalDate.parse(f[2]));
+                    if (f.length > 3 && f[3] != null) borrowers.put(Integer.parseInt(f[1]), Integer.parseInt(f[3]));
+                    break;
+                case "A":
+                    acknowledged(Long.parseLong(f[1]));
+                    break;
+                case "I":
+                case "R":
+                case "P":
+                    apply(new Change(Long.parseLong(f[1]), f[0].charAt(0), Arrays.copyOfRange(f, 2, f.length)));
+                    break;
+                default:
+                    throw new IOException("unknown record type " + f[0]);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(file + " has a malformed record at line " + lineNo, e);
+        }
+    }
+
+    private void append(byte[] lines) throws IOException {
+        if (failed != null) throw new IOException("Journal writes stopped after an earlier failure; restart to recover", failed);
+        try {
+            out.write(lines);
+            if (sync) out.getFD().sync();
+        } catch (IOException e) {
+            failed = e;
+            throw e;
+        }
+    }
+
+    private static byte[] encode(String... fields) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append('\t');
+            String field = fields[i];
+            if (field == null) {
+                sb.append("\\N");
+                continue;
+            }
+            for (int k = 0; k < field.length(); k++) {
+                char c = field.charAt(k);
+                switch (c) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '\t': sb.append("\\t"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    default: sb.append(c);
+                }
+            }
+        }
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        long value = crc.getValue();
+        byte[] line = Arrays.copyOf(body, body.length + 10);
+        line[body.length] = '\t';
+        for (int i = 0; i < 8; i++) line[body.length + 1 + i] = HEX[(int) (value >>> (28 - 4 * i)) & 0xf];
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    // Null if the checksum doesn't match (a torn or damaged line).
+    private static String[] decode(byte[] line, int length) {
+        int tab = length - 9;
+        if (tab < 0 || line[tab] != '\t') return null;
+        long expected = 0;
+        for (int i = tab + 1; i < length; i++) {
+            int digit = Character.digit(line[i], 16);
+            if (digit < 0) return null;
+            expected = expected << 4 | digit;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(line, 0, tab);
+        if (crc.getValue() != expected) return null;
+
+        String[] fields = new String(line, 0, tab, StandardCharsets.UTF_8).split("\t", -1);
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i];
+            if (field.equals("\\N")) {
+                fields[i] = null;
+            } else if (field.indexOf('\\') >= 0) {
+                StringBuilder sb = new StringBuilder(field.length());
+                for (int k = 0; k < field.length(); k++) {
+                    char c = field.charAt(k);
+                    if (c != '\\' || k + 1 == field.length()) {
+                        sb.append(c);
+                        continue;
+                    }
+                    char e = field.charAt(++k);
+                    sb.append(e == 't' ? '\t' : e == 'n' ? '\n' : e == 'r' ? '\r' : e);
+                }
+                fields[i] = sb.toString();
+            }
+        }
+        return fields;
+    }
+
+    // ================= LIFECYCLE =================
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            if (out != null) out.close();
+            if (fileLock != null) fileLock.release();
+            lockFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "Storage: branch journal " + file + " (" + books.size() + " copies, " + users.size() + " users, "
+                    + dueDates.size() + " open loans, " + pending.size() + " changes waiting for replay)";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package library;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// ================= MINIMAL JSON =================
+// Just enough JSON for catalog files and small request bodies, without pulling in a library.
+// Objects become LinkedHashMap<String, Object>, arrays ArrayList<Object>, numbers Long or
+// Double, plus String / Boolean / null. Top-level arrays can be streamed element by element
+// so a catalog file never has to fit in memory.
+final class Json {
+
+    private Json() {
+    }
+
+    static Object parse(String text) throws IOException {
+        return parse(text, 1);
+    }
+
+    // For one line of a larger file: errors report the line's number in that file.
+    static Object parse(String text, long line) throws IOException {
+        Parser p = new Parser(new StringReader(text), line);
+        Object value = p.readValue();
+        p.skipWhitespace();
+        if (p.peek() != -1) throw p.error("Trailing characters after JSON value");
+        return value;
+    }
+
+    // Appends s as a quoted JSON string literal.
+    static StringBuilder quote(StringBuilder out, String s) {
+        if (s == null) return out.append("null");
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    // ================= PULL PARSER =================
+    static final class Parser {
+        private final Reader in;
+        private int peeked = -2;
+        private long line;
+
+        Parser(Reader in) {
+            this(in, 1);
+        }
+
+        Parser(Reader in, long firstLine) {
+            this.in = in;
+            this.line = firstLine;
+        }
+
+        long line() {
+            return line;
+        }
+
+        // --- streaming over a top-level array ---
+        void beginArray() throws IOException {
+            expect('[');
+        }
+
+        // True if another element follows; consumes the separating comma or the closing ']'.
+        boolean hasNextElement(boolean first) throws IOException {
+            skipWhitespace();
+            int c = peek();
+            if (c == ']') {
+                read();
+                return false;
+            }
+            if (!first) {
+                if (c != ',') throw error("Expected ',' or ']'");
+                read();
+            }
+            return true;
+        }
+
+        Object readValue() throws IOException {
+            skipWhitespace();
+            int c = peek();
+            switch (c) {
+                case '{': return readObject();
+                case '[': return readArray();
+                case '"': return readString();
+                case 't': expectWord("true"); return Boolean.TRUE;
+                case 'f': expectWord("false"); return Boolean.FALSE;
+                case 'n': expectWord("null"); return null;
+                case -1: throw error("Unexpected end of input");
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+                    throw error("Unexpected character '" + (char) c + "'");
+            }
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            expect('{');
+            Map<String, Object> obj = new LinkedHashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                read();
+                return obj;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') throw error("Expected field name");
+                String key = readString();
+                expect(':');
+                obj.put(key, readValue());
+                skipWhitespace();
+                int c = read();
+                if (c == '}') return obj;
+                if (c != ',') throw error("Expected ',' or '}'");
+            }
+        }
+
+        private List<Object> readArray() throws IOException {
+            beginArray();
+            List<Object> list = new ArrayList<>();
+            for (boolean first = true; hasNextElement(first); first = false) {
+                list.add(readValue());
+            }
+            return list;
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) throw error("Unterminated string");
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append((char) c);
+                    continue;
+                }
+                int e = read();
+                switch (e) {
+                    case '"': sb.append('"'); break;
+                    case '\\': sb.append('\\'); break;
+                    case '/': sb.append('/'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int h = Character.digit(read(), 16);
+                            if (h < 0) throw error("Bad \\u escape");
+                            code = code * 16 + h;
+                        }
+                        sb.append((char) code);
+                        break;
+                    default:
+                        throw error("Bad escape");
+                }
+            }
+        }
+
+        private Number readNumber() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && "+-0123456789.eE".indexOf(c) >= 0) sb.append((char) read());
+            String s = sb.toString();
+            try {
+                if (s.indexOf('.') < 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) return Long.parseLong(s);
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                throw error("Bad number '" + s + "'");
+            }
+        }
+
+        private void expectWord(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++) {
+                if (read() != word.charAt(i)) throw error("Expected '" + word + "'");
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            skipWhitespace();
+            if (read() != expected) throw error("Expected '" + expected + "'");
+        }
+
+        void skipWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\t' || c == '\n' || c == '\r') read();
+        }
+
+        int peek() throws IOException {
+            if (peeked == -2) peeked = in.read();
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            if (c == '\n') line++;
+            return c;
+        }
+
+        IOException error(String message) {
+            return new IOException(message + " (line " + line + ")");
+        }
+    }
+}
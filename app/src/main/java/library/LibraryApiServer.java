@@ -0,0 +1,389 @@
+package library;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+// ================= HTTP API =================
+// Headless JSON front door to CirculationService for self-check kiosks and the mobile app.
+// Sign in first, then browse; issuing and returning are staff (Admin) actions.
+//
+//   POST /api/login                {"username": "...", "password": "..."}  -> {"token", "role", "expiresAt"}
+//   GET  /api/books?after=0&limit=50                                      -> {"items": [...], "next": id|null}
+//   GET  /api/books/{id}
+//   POST /api/books/{id}/issue     {"memberId": 42}                       -> {"dueDate"} | 403 | 404 | 409
+//   POST /api/books/{id}/return                                           -> {"fine"} | 403 | 409
+//
+// Every call except login needs "Authorization: Bearer <token>"; tokens are signed by
+// SessionTokens, so checking one never touches the database. Issue and return act on any
+// member's loans and accounts are not tied to a member id, so both need an Admin token.
+// Catalog pages carry a weak ETag over their content, so a client polling an unchanged
+// page gets a body-less 304.
+// Each exchange runs on its own virtual thread (JDK 21+); it blocks on the service future,
+// which is cheap there, and the service still caps how many touch the database at once.
+final class LibraryApiServer implements AutoCloseable {
+
+    static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int BUSY_RETRY_AFTER_SECONDS = 1;
+
+    static {
+        // The JDK server leaves Nagle on by default, which adds ~40 ms to small responses
+        // whenever the client delays its ACK. Must be set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final CirculationService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AuthService auth;
+
+    // Thrown by handlers to answer with a status code and a JSON {"error": ...} body.
+    private static final class ApiException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        final int retryAfterSeconds; // sent as Retry-After when > 0
+
+        ApiException(int status, String message) {
+            this(status, message, 0);
+        }
+
+        ApiException(int status, String message, int retryAfterSeconds) {
+            super(message);
+            this.status = status;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    LibraryApiServer(CirculationService service, AuthService auth, int port) throws IOException {
+        this.service = service;
+        this.auth = auth;
+        this.server = HttpServer.create(new InetSocketAddress(port), 256);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/login", exchange -> handle(exchange, this::login));
+        server.createContext("/api/books", exchange -> handle(exchange, this::books));
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException notOnThisJdk) {
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newFixedThreadPool(64, r -> {
+                Thread t = new Thread(r, "library-http-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    void start() {
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    // ================= ROUTES =================
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws ApiException, IOException;
+    }
+
+    // Each exchange is recorded as "api <METHOD> <context>"; only 5xx replies count as errors,
+    // a 4xx is the client's mistake and the desk operations underneath record their own.
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        try {
+            handler.handle(exchange);
+        } catch (ApiException e) {
+            if (e.retryAfterSeconds > 0) {
+                exchange.getResponseHeaders().set("Retry-After", Integer.toString(e.retryAfterSeconds));
+            }
+            sendError(exchange, e.status, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+            int status = exchange.getResponseCode();
+            service.metrics().operation("api " + exchange.getRequestMethod() + " " + exchange.getHttpContext().getPath())
+                    .record(System.nanoTime() - start, status < 0 || status >= 500);
+        }
+    }
+
+    private void login(HttpExchange exchange) throws ApiException, IOException {
+        requireMethod(exchange, "POST");
+        Map<String, Object> body = readJsonObject(exchange);
+        String username = requireString(body, "username");
+        String password = requireString(body, "password");
+
+        Optional<AuthService.Login> login = await(auth.login(username, password));
+        if (!login.isPresent()) throw new ApiException(401, "Invalid credentials");
+
+        StringBuilder json = new StringBuilder("{\"token\":");
+        Json.quote(json, login.get().token).append(",\"role\":");
+        Json.quote(json, login.get().principal.role).append(",\"expiresAt\":");
+        json.append(login.get().principal.expiresAtSeconds).append('}');
+        sendJson(exchange, 200, json, null);
+    }
+
+    // /api/books, /api/books/{id}, /api/books/{id}/issue, /api/books/{id}/return
+    private void books(HttpExchange exchange) throws ApiException, IOException {
+        SessionTokens.Principal principal = authenticate(exchange);
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        // "", "api", "books", id?, action?
+        if (parts.length < 3 || !"books".equals(parts[2])) throw new ApiException(404, "No such resource");
+        if (parts.length == 3) {
+            requireMethod(exchange, "GET");
+            listBooks(exchange);
+            return;
+        }
+        int bookId = parsePositiveInt(parts[3], "book id");
+        if (parts.length == 4) {
+            requireMethod(exchange, "GET");
+            BookRow row = await(service.findBook(bookId)).orElseThrow(() -> new ApiException(404, "Book not found"));
+            sendJson(exchange, 200, appendBook(new StringBuilder(), row), null);
+        } else if (parts.length == 5 && "issue".equals(parts[4])) {
+            requireMethod(exchange, "POST");
+            requireAdmin(principal);
+            issue(exchange, bookId);
+        } else if (parts.length == 5 && "return".equals(parts[4])) {
+            requireMethod(exchange, "POST");
+            requireAdmin(principal);
+            returnBook(exchange, bookId);
+        } else {
+            throw new ApiException(404, "No such resource");
+        }
+    }
+
+    private void listBooks(HttpExchange exchange) throws ApiException, IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI());
+        int after = query.containsKey("after") ? parseNonNegativeInt(query.get("after"), "after") : 0;
+        int limit = query.containsKey("limit") ? parsePositiveInt(query.get("limit"), "limit") : DEFAULT_PAGE_SIZE;
+        if (limit > CirculationService.MAX_PAGE_SIZE) {
+            throw new ApiException(400, "limit must be at most " + CirculationService.MAX_PAGE_SIZE);
+        }
+
+        List<BookRow> rows = await(service.catalogPage(after, limit));
+        String etag = etagFor(after, limit, rows);
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (etag.equals(ifNoneMatch)) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(64 + rows.size() * 96).append("{\"items\":[");
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) json.append(',');
+            appendBook(json, rows.get(i));
+        }
+        json.append("],\"next\":");
+        if (rows.size() == limit) json.append(rows.get(rows.size() - 1).bookId);
+        else json.append("null");
+        sendJson(exchange, 200, json.append('}'), etag);
+    }
+
+    private void issue(HttpExchange exchange, int bookId) throws ApiException, IOException {
+        Map<String, Object> body = readJsonObject(exchange);
+        Object member = body.get("memberId");
+        if (!(member instanceof Long) || (Long) member < 1 || (Long) member > Integer.MAX_VALUE) {
+            throw new ApiException(400, "memberId must be a positive integer");
+        }
+        CirculationService.IssueResult result = await(service.issue(bookId, (int) (long) (Long) member));
+        switch (result.outcome) {
+            case NOT_FOUND:
+                throw new ApiException(404, "Book not found");
+            case ALREADY_ISSUED:
+                throw new ApiException(409, "Book is already issued");
+            default:
+                StringBuilder json = new StringBuilder("{\"bookId\":").append(bookId).append(",\"dueDate\":");
+                Json.quote(json, result.dueDate.toString()).append('}');
+                sendJson(exchange, 200, json, null);
+        }
+    }
+
+    private void returnBook(HttpExchange exchange, int bookId) throws ApiException, IOException {
+        CirculationService.ReturnResult result = await(service.returnBook(bookId));
+        if (!result.returned) throw new ApiException(409, "Book is not currently issued");
+        StringBuilder json = new StringBuilder("{\"bookId\":").append(bookId)
+                .append(",\"fine\":").append(result.fine.toPlainString()).append('}');
+        sendJson(exchange, 200, json, null);
+    }
+
+    // ================= AUTH =================
+    // Signed tokens are checked in memory; no database round trip per request.
+    private SessionTokens.Principal authenticate(HttpExchange exchange) throws ApiException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) throw new ApiException(401, "Missing bearer token");
+        return auth.verifyToken(header.substring("Bearer ".length()).trim())
+                .orElseThrow(() -> new ApiException(401, "Invalid or expired token"));
+    }
+
+    private static void requireAdmin(SessionTokens.Principal principal) throws ApiException {
+        if (!principal.isAdmin()) throw new ApiException(403, "Issue and return need an Admin account");
+    }
+
+    // ================= HELPERS =================
+    // Unwraps a service future, mapping its failures onto HTTP statuses.
+    private static <T> T await(CompletableFuture<T> future) throws ApiException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IllegalArgumentException) throw new ApiException(400, cause.getMessage());
+            // A full login-hashing or worker queue is load shedding doing its job, not a fault:
+            // no stack trace per refused request, just tell the client when to come back.
+            if (cause instanceof RejectedExecutionException) {
+                throw new ApiException(503, "Server busy, try again shortly", BUSY_RETRY_AFTER_SECONDS);
+            }
+            if (cause instanceof SQLException) {
+                cause.printStackTrace();
+                throw new ApiException(503, "Database unavailable");
+            }
+            cause.printStackTrace();
+            throw new ApiException(500, "Internal error");
+        }
+    }
+
+    // Weak validator over exactly what the page shows; changes when any copy on it changes status.
+    private static String etagFor(int after, int limit, List<BookRow> rows) {
+        CRC32 crc = new CRC32();
+        StringBuilder sb = new StringBuilder();
+        for (BookRow row : rows) {
+            sb.setLength(0);
+            sb.append(row.bookId).append('\u0001').append(row.status).append('\u0001').append(row.title)
+                    .append('\u0001').append(row.author).append('\u0001').append(row.category).append('\n');
+            crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return "W/\"" + after + "-" + limit + "-" + rows.size() + "-" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    private static StringBuilder appendBook(StringBuilder json, BookRow row) {
+        json.append("{\"id\":").append(row.bookId).append(",\"title\":");
+        Json.quote(json, row.title).append(",\"author\":");
+        Json.quote(json, row.author).append(",\"category\":");
+        Json.quote(json, row.category).append(",\"status\":");
+        return Json.quote(json, row.status).append('}');
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws ApiException {
+        if (!method.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new ApiException(405, "Use " + method);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> readJsonObject(HttpExchange exchange) throws ApiException, IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, n);
+                if (buffer.size() > MAX_BODY_BYTES) throw new ApiException(413, "Request body too large");
+            }
+        }
+        if (buffer.size() == 0) return new HashMap<>();
+        Object parsed;
+        try {
+            parsed = Json.parse(buffer.toString(StandardCharsets.UTF_8.name()));
+        } catch (IOException e) {
+            throw new ApiException(400, "Malformed JSON: " + e.getMessage());
+        }
+        if (!(parsed instanceof Map)) throw new ApiException(400, "Expected a JSON object");
+        return (Map<String, Object>) parsed;
+    }
+
+    private static String requireString(Map<String, Object> body, String field) throws ApiException {
+        Object value = body.get(field);
+        if (!(value instanceof String) || ((String) value).isEmpty()) throw new ApiException(400, field + " is required");
+        return (String) value;
+    }
+
+    private static Map<String, String> parseQuery(URI uri) throws ApiException {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null || raw.isEmpty()) return params;
+        try {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8.name());
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8.name());
+                params.put(key, value);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new ApiException(400, "Malformed query string");
+        }
+        return params;
+    }
+
+    private static int parsePositiveInt(String text, String name) throws ApiException {
+        int value = parseNonNegativeInt(text, name);
+        if (value == 0) throw new ApiException(400, name + " must be positive");
+        return value;
+    }
+
+    private static int parseNonNegativeInt(String text, String name) throws ApiException {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < 0) throw new NumberFormatException();
+            return value;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, name + " must be a non-negative integer");
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, message).append('}');
+        sendJson(exchange, status, json, null);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, CharSequence json, String etag) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package library;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+// ================= STORAGE BACKEND =================
+// What the desk, the HTTP API and sign-in need from storage. CirculationService runs these on
+// its executor like any other work, so implementations may block.
+//
+// - JdbcLibraryRepository: the central MySQL database (any schema SchemaMigrator has set up);
+// - JournalRepository: an embedded, file-backed journal with an in-memory index, for a branch
+//   that has lost its link to the centre (and for hermetic benchmarks). JournalReplay applies
+//   its changes to the central database once the link is back.
+//
+// Admin work (imports, new copies, the overdue job, the title backfill) is JDBC-only and goes
+// through CirculationService.submit.
+interface LibraryRepository extends AutoCloseable {
+
+    final class Credential {
+        final String hash;
+        final String role;
+
+        Credential(String hash, String role) {
+            this.hash = hash;
+            this.role = role;
+        }
+    }
+
+    // Copies with book_id > afterId, ascending.
+    List<BookRow> catalogPage(int afterId, int limit, CirculationService.Call<?> call) throws SQLException, IOException;
+
+    BookRow findBook(int bookId, CirculationService.Call<?> call) throws SQLException, IOException;
+
+    CirculationService.IssueResult issue(int bookId, int memberId, LocalDate issueDate, LocalDate dueDate,
+                                         CirculationService.Call<?> call) throws SQLException, IOException;
+
+    CirculationService.ReturnResult returnBook(int bookId, LocalDate returnDate, CirculationService.Call<?> call)
+            throws SQLException, IOException;
+
+    // Scan sessions: the copies that can go are committed together, the others come back as
+    // refused lines. bookIds are distinct.
+    BatchReceipt issueAll(int[] bookIds, int memberId, LocalDate issueDate, LocalDate dueDate,
+                          CirculationService.Call<?> call) throws SQLException, IOException;
+
+    BatchReceipt returnAll(int[] bookIds, LocalDate returnDate, CirculationService.Call<?> call)
+            throws SQLException, IOException;
+
+    Credential findCredential(String username, CirculationService.Call<?> call) throws SQLException, IOException;
+
+    // Stores a new hash. With expectedHash set, only if the stored hash is still that one.
+    boolean replacePasswordHash(String username, String expectedHash, String newHash, CirculationService.Call<?> call)
+            throws SQLException, IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,1003 @@
+package library;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.sql.*;
+import java.io.Console;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+public class LibrarySystem {
+
+    // --- CONFIGURATION ---
+    // Added '?createDatabaseIfNotExist=true' to guarantee the database is created!
+    // 'rewriteBatchedStatements=true' lets Connector/J send a JDBC batch as one multi-row INSERT.
+    // 'useCursorFetch=true' makes setFetchSize() stream large scans instead of buffering them.
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/library_db?createDatabaseIfNotExist=true&rewriteBatchedStatements=true&useCursorFetch=true";
+    private static final String DB_USER = "root";
+    private static final String DB_PASS = "your_mysql_password"; // <-- CHANGE THIS TO YOUR MYSQL PASSWORD
+
+    // --- METRICS ---
+    // Latency and error counts for every JDBC call and desk action; see DB Stats, the JMX bean
+    // library:type=Metrics, and the report printed every library.metrics.reportMinutes.
+    private static final Metrics METRICS = Metrics.fromProperties();
+
+    // --- STORAGE ---
+    // -Dlibrary.storage=journal keeps a branch circulating on its local journal while the link to
+    // the central database is down (fill it beforehand with --snapshot-journal, apply it
+    // afterwards with --replay-journal). Admin work needs the central database either way.
+    private static final boolean BRANCH_MODE = "journal".equals(System.getProperty("library.storage", "central"));
+    private static final Path JOURNAL_DIR = Paths.get(System.getProperty("library.journal.dir", "branch-journal"));
+
+    // --- CONNECTION POOL ---
+    // Every desk action borrows from this pool instead of paying a full TCP + auth handshake.
+    // Override with -Dlibrary.db.url=... (e.g. an embedded database) and -Dlibrary.pool.* for tuning.
+    private static final ConnectionPool POOL = new ConnectionPool(
+            System.getProperty("library.db.url", DB_URL),
+            System.getProperty("library.db.user", DB_USER),
+            System.getProperty("library.db.password", DB_PASS),
+            Integer.getInteger("library.pool.maxSize", 8),
+            Long.getLong("library.pool.borrowTimeoutMillis", 10_000),
+            Long.getLong("library.pool.idleTimeoutMillis", 300_000),
+            Long.getLong("library.pool.leakThresholdMillis", 60_000),
+            Integer.getInteger("library.pool.statementCacheSize", 32),
+            METRICS);
+
+    // --- BACKGROUND WORK ---
+    // Database calls never run on the Event Dispatch Thread; they go through this service.
+    private static final CirculationService SERVICE = newService(Integer.getInteger("library.workers", 8));
+    private static final AuthService AUTH = AuthService.fromProperties(SERVICE);
+
+    // --- GLOBAL STATE ---
+    private static JFrame mainFrame;
+    private static SessionTokens.Principal currentUser; // null while signed out
+    private static TitleTableModel catalogModel;
+    private static SearchResultsModel branchCopiesModel; // branch mode's stand-in for catalogModel
+    private static SearchResultsModel searchModel;
+    private static CatalogChangePoller changePoller;
+    private static final CatalogIndex SEARCH_INDEX = new CatalogIndex();
+    private static final int SEARCH_DEBOUNCE_MILLIS = 150;
+    private static final long CHANGE_POLL_MILLIS = Long.getLong("library.poll.millis", 5_000);
+    private static final int PROGRESS_DELAY_MILLIS = 300;
+
+    // --- OVERDUE ENGINE ---
+    // Re-prices every past-due loan into overdue_loans; first run a minute after startup, then hourly.
+    private static final OverdueJob OVERDUE_JOB = new OverdueJob(POOL, FineCalculator.DEFAULT,
+            Integer.getInteger("library.overdue.chunkSize", OverdueJob.DEFAULT_CHUNK_SIZE),
+            Integer.getInteger("library.overdue.threads", 3));
+    private static final long OVERDUE_PERIOD_MILLIS = Long.getLong("library.overdue.periodMinutes", 60) * 60_000;
+    private static final int OVERDUE_LIST_LIMIT = 100;
+
+    // --- TITLE BACKFILL ---
+    // Folds copies from before the titles/copies tables into them, a chunk at a time, after startup.
+    private static final TitleBackfill TITLE_BACKFILL = new TitleBackfill(POOL, SERVICE.events(),
+            Integer.getInteger("library.backfill.chunkSize", TitleBackfill.DEFAULT_CHUNK_SIZE),
+            Long.getLong("library.backfill.pauseMillis", 20));
+
+    // Completes once the schema is current and the pool is warm; only the login button waits on it.
+    private static CompletableFuture<Void> databaseReady;
+    private static final StartupTimings STARTUP = new StartupTimings();
+    private static final int WARM_UP_CONNECTIONS = Integer.getInteger("library.pool.warmUp", 2);
+
+    private static CirculationService newService(int workers) {
+        if (!BRANCH_MODE) return new CirculationService(POOL, workers, METRICS);
+        try {
+            JournalRepository journal = JournalRepository.open(JOURNAL_DIR, FineCalculator.DEFAULT);
+            System.out.println("Branch mode. " + journal);
+            return new CirculationService(journal, workers, METRICS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the branch journal in " + JOURNAL_DIR, e);
+        }
+    }
+
+    public static void main(String[] args) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            TITLE_BACKFILL.close();
+            OVERDUE_JOB.close();
+            AUTH.close();
+            SERVICE.close();
+            POOL.close();
+            METRICS.close();
+        }, "pool-shutdown"));
+        METRICS.registerMBean(null);
+        METRICS.startReporting(Long.getLong("library.metrics.reportMinutes", 5) * 60_000);
+        // Headless bulk import: java -jar library-app.jar --import catalog.csv
+        if (args.length == 2 && "--import".equals(args[0])) {
+            setupDatabaseTables();
+            runHeadlessImport(Paths.get(args[1]));
+            return;
+        }
+        // Re-price overdue loans once and exit (e.g. from cron): java -jar library-app.jar --overdue
+        if (args.length == 1 && "--overdue".equals(args[0])) {
+            setupDatabaseTables();
+            runHeadlessOverdue();
+            return;
+        }
+        // Circulation stats as CSV (e.g. nightly from cron): java -jar library-app.jar --report <dir> [--incremental]
+        if ((args.length == 2 || (args.length == 3 && "--incremental".equals(args[2]))) && "--report".equals(args[0])) {
+            setupDatabaseTables();
+            runHeadlessReport(Paths.get(args[1]), args.length == 3);
+            return;
+        }
+        // Headless HTTP API for kiosks and the mobile app: java -jar library-app.jar --serve [port]
+        if ((args.length == 1 || args.length == 2) && "--serve".equals(args[0])) {
+            int port = args.length == 2 ? parsePort(args[1]) : LibraryApiServer.DEFAULT_PORT;
+            if (port < 0) {
+                System.err.println("Usage: --serve [port]  (port must be a number from 1 to 65535, default "
+                        + LibraryApiServer.DEFAULT_PORT + ")");
+                System.exit(1);
+            }
+            if (!BRANCH_MODE) setupDatabaseTables();
+            runApiServer(port);
+            return;
+        }
+        // Admin recovery: java -jar library-app.jar --reset-password <username> (prompts for the new password)
+        if (args.length == 2 && "--reset-password".equals(args[0])) {
+            if (!BRANCH_MODE) setupDatabaseTables();
+            runPasswordReset(args[1]);
+            return;
+        }
+        // Branch journal, run against the central database:
+        //   --snapshot-journal  copies the catalog, users and open loans into library.journal.dir
+        //   --replay-journal    applies what the branch did offline, then takes a fresh snapshot
+        if (args.length == 1 && ("--snapshot-journal".equals(args[0]) || "--replay-journal".equals(args[0]))) {
+            setupDatabaseTables();
+            runJournalSync("--replay-journal".equals(args[0]));
+            return;
+        }
+
+        // The login window goes up straight away; schema checks and pool warm-up run meanwhile.
+        databaseReady = CompletableFuture.runAsync(LibrarySystem::prepareDatabase,
+                r -> new Thread(r, "library-startup").start());
+        STARTUP.time("look-and-feel", () -> {
+            setupModernUI();
+            return null;
+        });
+        SwingUtilities.invokeLater(() -> {
+            showLoginScreen();
+            STARTUP.mark("login window visible");
+        });
+        databaseReady.whenComplete((r, err) -> {
+            STARTUP.mark("login enabled");
+            System.out.print(STARTUP.report());
+        });
+    }
+
+    private static void prepareDatabase() {
+        if (BRANCH_MODE) {
+            buildSearchIndex();
+            return;
+        }
+        CompletableFuture<Integer> warmUp = CompletableFuture.supplyAsync(() -> {
+            try {
+                return STARTUP.time("pool warm-up", () -> POOL.warmUp(WARM_UP_CONNECTIONS));
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        try (Connection conn = STARTUP.time("first connection", LibrarySystem::connect)) {
+            STARTUP.time("schema migrations", () -> applyMigrations(conn));
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        }
+        warmUp.join();
+        startCatalogTracking();
+        TITLE_BACKFILL.start();
+        buildSearchIndex();
+        OVERDUE_JOB.start(Math.min(60_000, OVERDUE_PERIOD_MILLIS), OVERDUE_PERIOD_MILLIS);
+    }
+
+    private static void runHeadlessImport(Path file) {
+        try {
+            BookImporter.ImportReport report = SERVICE.importCatalog(file).join();
+            System.out.println("Imported " + file + ":\n" + report);
+            if (report.stoppedAt != null) System.exit(1);
+        } catch (CompletionException e) {
+            System.err.println("Import failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // -1 unless text is a TCP port number.
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text.trim());
+            return port >= 1 && port <= 65_535 ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // The server's dispatcher thread keeps the JVM alive after main returns.
+    private static void runApiServer(int port) {
+        try {
+            LibraryApiServer api = new LibraryApiServer(SERVICE, AUTH, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(api::close, "api-shutdown"));
+            if (!BRANCH_MODE) {
+                startCatalogTracking(); // keeps the book cache current with changes made at the desks
+                TITLE_BACKFILL.start();
+                OVERDUE_JOB.start(Math.min(60_000, OVERDUE_PERIOD_MILLIS), OVERDUE_PERIOD_MILLIS);
+            }
+            api.start();
+            System.out.println("Library API listening on http://localhost:" + api.port() + "/api/");
+        } catch (IOException e) {
+            System.err.println("Could not start the API server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runHeadlessOverdue() {
+        try {
+            System.out.println("Overdue job " + OVERDUE_JOB.run(LocalDate.now()));
+        } catch (SQLException e) {
+            System.err.println("Overdue job failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void runHeadlessReport(Path dir, boolean incremental) {
+        try {
+            CirculationReport report = new CirculationReport(POOL,
+                    Integer.getInteger("library.report.topTitles", CirculationReport.DEFAULT_TOP_TITLES));
+            System.out.println("Circulation report " + METRICS.time("circulationReport", () -> report.run(dir, incremental)));
+        } catch (Exception e) {
+            System.err.println("Circulation report failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static void runJournalSync(boolean replay) {
+        if (BRANCH_MODE) {
+            System.err.println("Run this against the central database, without -Dlibrary.storage=journal.");
+            System.exit(1);
+        }
+        try (JournalRepository journal = JournalRepository.open(JOURNAL_DIR, FineCalculator.DEFAULT)) {
+            if (replay) System.out.println("Journal replay: " + JournalReplay.run(journal, POOL, FineCalculator.DEFAULT));
+            try (Connection conn = connect()) {
+                System.out.println("Journal snapshot: " + journal.snapshot(conn) + " copies into " + JOURNAL_DIR);
+            }
+        } catch (IOException | SQLException | IllegalStateException e) {
+            System.err.println("Journal " + (replay ? "replay" : "snapshot") + " failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Replaces the old unconditional "EMERGENCY PASSWORD RESET" that ran on every start.
+    // The password is only ever read from the terminal, never from argv (visible in ps and history).
+    private static void runPasswordReset(String username) {
+        Console console = System.console();
+        if (console == null) {
+            System.err.println("--reset-password needs an interactive terminal to read the new password.");
+            System.exit(1);
+        }
+        char[] first = console.readPassword("New password for '%s': ", username);
+        char[] again = console.readPassword("Repeat it: ");
+        if (first == null || again == null || !Arrays.equals(first, again)) {
+            System.err.println("Passwords do not match.");
+            System.exit(1);
+        }
+        String password = new String(first);
+        Arrays.fill(first, ' ');
+        Arrays.fill(again, ' ');
+        if (password.isEmpty()) {
+            System.err.println("Password must not be empty.");
+            System.exit(1);
+        }
+        try {
+            if (AUTH.resetPassword(username, password).join()) {
+                System.out.println("Password for '" + username + "' has been reset.");
+            } else {
+                System.err.println("No such user: " + username);
+                System.exit(1);
+            }
+        } catch (CompletionException e) {
+            System.err.println("Password reset failed: " + e.getCause().getMessage());
+            System.exit(1);
+        }
+    }
+
+    // ================= AUTO-SETUP DATABASE =================
+    // Versioned migrations (see SchemaMigrator); a current schema costs a single query.
+    private static void setupDatabaseTables() {
+        try (Connection conn = connect()) {
+            applyMigrations(conn);
+        } catch (SQLException e) {
+            System.err.println("Failed to auto-setup tables. Check MySQL connection.");
+            e.printStackTrace();
+        }
+    }
+
+    private static List<SchemaMigrator.Migration> applyMigrations(Connection conn) throws SQLException {
+        List<SchemaMigrator.Migration> applied = SchemaMigrator.migrate(conn);
+        for (SchemaMigrator.Migration m : applied) {
+            System.out.println("Applied schema migration V" + m.version + ": " + m.description);
+        }
+        return applied;
+    }
+
+    // ================= UI UPGRADES =================
+    private static void setupModernUI() {
+        try {
+            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                if ("Nimbus".equals(info.getName())) {
+                    UIManager.setLookAndFeel(info.getClassName());
+                    break;
+                }
+            }
+            Font modernFont = new Font("Segoe UI", Font.PLAIN, 14);
+            UIManager.put("Label.font", modernFont);
+            UIManager.put("Button.font", new Font("Segoe UI", Font.BOLD, 14));
+            UIManager.put("TextField.font", modernFont);
+            UIManager.put("PasswordField.font", modernFont);
+            UIManager.put("Table.font", modernFont);
+            UIManager.put("TableHeader.font", new Font("Segoe UI", Font.BOLD, 14));
+            UIManager.put("OptionPane.messageFont", modernFont);
+            UIManager.put("OptionPane.buttonFont", new Font("Segoe UI", Font.BOLD, 13));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // ================= DATABASE CONNECTION =================
+    // Hands out a pooled connection; closing it returns it to the pool.
+    private static Connection connect() throws SQLException {
+        return POOL.getConnection();
+    }
+
+    // ================= GUI: LOGIN SCREEN =================
+    private static void showLoginScreen() {
+        currentUser = null;
+        detachCatalogViews();
+        if (mainFrame != null) mainFrame.dispose();
+        mainFrame = new JFrame("Library System - Secure Login");
+        mainFrame.setSize(450, 350);
+        mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainFrame.setLocationRelativeTo(null);
+
+        JPanel mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(30, 40, 30, 40));
+        mainPanel.setBackground(new Color(245, 247, 250));
+
+        JLabel titleLabel = new JLabel("Welcome Back", SwingConstants.CENTER);
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        titleLabel.setForeground(new Color(44, 62, 80));
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 20, 0));
+        mainPanel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel formPanel = new JPanel(new GridLayout(4, 1, 10, 10));
+        formPanel.setOpaque(false);
+
+        JLabel lblUser = new JLabel("Username");
+        JTextField txtUser = new JTextField();
+        JLabel lblPass = new JLabel("Password");
+        JPasswordField txtPass = new JPasswordField();
+
+        formPanel.add(lblUser);
+        formPanel.add(txtUser);
+        formPanel.add(lblPass);
+        formPanel.add(txtPass);
+        mainPanel.add(formPanel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonPanel.setOpaque(false);
+        buttonPanel.setBorder(BorderFactory.createEmptyBorder(20, 0, 0, 0));
+
+        JButton btnLogin = new JButton("Secure Login");
+        btnLogin.setPreferredSize(new Dimension(150, 40));
+        btnLogin.setBackground(new Color(41, 128, 185));
+        btnLogin.setForeground(Color.WHITE);
+        btnLogin.setFocusPainted(false);
+
+        buttonPanel.add(btnLogin);
+        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        if (!databaseReady.isDone()) {
+            btnLogin.setEnabled(false);
+            btnLogin.setText("Connecting...");
+        }
+        databaseReady.whenComplete((r, err) -> SwingUtilities.invokeLater(() -> {
+            btnLogin.setText("Secure Login");
+            btnLogin.setEnabled(true);
+            if (err != null && mainFrame.isShowing()) {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                System.err.println("Failed to prepare the database. Check MySQL connection.");
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(mainFrame, "Could not reach the database:\n" + cause.getMessage(),
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+
+        btnLogin.addActionListener(e -> {
+            String user = txtUser.getText();
+            String pass = new String(txtPass.getPassword());
+            btnLogin.setEnabled(false);
+            authenticateUser(user, pass).whenComplete((r, err) -> SwingUtilities.invokeLater(() -> btnLogin.setEnabled(true)));
+        });
+
+        mainFrame.add(mainPanel);
+        mainFrame.setVisible(true);
+    }
+
+    private static CompletableFuture<?> authenticateUser(String username, String password) {
+        return runInBackground("Signing in...", AUTH.login(username, password), login -> {
+            if (login.isPresent()) {
+                currentUser = login.get().principal;
+                showDashboard();
+            } else {
+                JOptionPane.showMessageDialog(mainFrame, "Invalid Credentials", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    // ================= GUI: DASHBOARD =================
+    private static void showDashboard() {
+        mainFrame.dispose();
+        mainFrame = new JFrame("Library Dashboard - " + currentUser.role);
+        mainFrame.setSize(850, 600);
+        mainFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainFrame.setLocationRelativeTo(null);
+
+        JPanel contentPane = new JPanel(new BorderLayout(10, 10));
+        contentPane.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        contentPane.setBackground(new Color(245, 247, 250));
+
+        JPanel navPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 10));
+        navPanel.setBackground(Color.WHITE);
+        navPanel.setBorder(BorderFactory.createLineBorder(new Color(220, 224, 230)));
+
+        JButton btnIssue = createNavButton("Issue Book", new Color(46, 204, 113));
+        JButton btnReturn = createNavButton("Return Book", new Color(243, 156, 18));
+        JButton btnSession = createNavButton("Scan Session", new Color(22, 160, 133));
+        JButton btnLogout = createNavButton("Logout", new Color(231, 76, 60));
+
+        navPanel.add(btnIssue);
+        navPanel.add(btnReturn);
+        navPanel.add(btnSession);
+
+        if (currentUser.isAdmin()) {
+            JButton btnAddBook = createNavButton("Add New Book", new Color(52, 152, 219));
+            navPanel.add(btnAddBook);
+            btnAddBook.addActionListener(e -> showAddBookDialog());
+
+            JButton btnImport = createNavButton("Bulk Import", new Color(142, 68, 173));
+            navPanel.add(btnImport);
+            btnImport.addActionListener(e -> showBulkImportDialog());
+
+            JButton btnOverdue = createNavButton("Overdue", new Color(192, 57, 43));
+            navPanel.add(btnOverdue);
+            btnOverdue.addActionListener(e -> showOverdueBacklog());
+
+            JButton btnPoolStats = createNavButton("DB Stats", new Color(127, 140, 141));
+            navPanel.add(btnPoolStats);
+            btnPoolStats.addActionListener(e -> showPoolStats());
+        }
+
+        navPanel.add(btnLogout);
+
+        JTable bookTable = new JTable();
+        bookTable.setRowHeight(30);
+        bookTable.setShowGrid(false);
+        bookTable.setIntercellSpacing(new Dimension(0, 0));
+        refreshCatalogTable(bookTable);
+        bookTable.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() != 2 || bookTable.getModel() != catalogModel) return;
+                int row = bookTable.rowAtPoint(e.getPoint());
+                TitleRow title = row < 0 ? null : catalogModel.titleAt(row);
+                if (title != null) showCopiesDialog(title);
+            }
+        });
+
+        JPanel northPanel = new JPanel(new BorderLayout(0, 10));
+        northPanel.setOpaque(false);
+        northPanel.add(navPanel, BorderLayout.NORTH);
+        northPanel.add(createSearchPanel(bookTable), BorderLayout.SOUTH);
+        contentPane.add(northPanel, BorderLayout.NORTH);
+
+        JScrollPane scrollPane = new JScrollPane(bookTable);
+        scrollPane.setBorder(BorderFactory.createLineBorder(new Color(220, 224, 230)));
+        contentPane.add(scrollPane, BorderLayout.CENTER);
+
+        btnIssue.addActionListener(e -> showIssueBookDialog());
+        btnReturn.addActionListener(e -> showReturnBookDialog());
+        btnSession.addActionListener(e -> showScanSessionDialog());
+        btnLogout.addActionListener(e -> showLoginScreen());
+
+        mainFrame.add(contentPane);
+        mainFrame.setVisible(true);
+    }
+
+    private static void showPoolStats() {
+        JTextArea area = new JTextArea(SERVICE.repository() + "\n\n" + POOL.stats() + "\n\n" + SERVICE.books().stats()
+                + "\n\n" + AUTH + "\n\n" + METRICS.report());
+        area.setEditable(false);
+        area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(mainFrame, area, "Connection Pool, Caches & Metrics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private static JButton createNavButton(String text, Color bgColor) {
+        JButton btn = new JButton(text);
+        btn.setBackground(bgColor);
+        btn.setForeground(Color.WHITE);
+        btn.setFocusPainted(false);
+        btn.setBorder(BorderFactory.createEmptyBorder(8, 15, 8, 15));
+        return btn;
+    }
+
+    // ================= LOGIC: DATA LOADING =================
+    // One row per title. The table pulls pages lazily as it scrolls; only the row count is
+    // queried up front.
+    private static void refreshCatalogTable(JTable table) {
+        if (BRANCH_MODE) {
+            // The journal keeps copies, not titles: list the first page of copies; search finds the rest.
+            if (branchCopiesModel != null) SERVICE.events().removeListener(branchCopiesModel);
+            SearchResultsModel copies = new SearchResultsModel();
+            branchCopiesModel = copies;
+            SERVICE.events().addListener(copies);
+            table.setModel(copies);
+            SERVICE.catalogPage(0, CirculationService.MAX_PAGE_SIZE).whenComplete((rows, err) -> {
+                if (err != null) err.printStackTrace();
+                else SwingUtilities.invokeLater(() -> copies.setRows(rows));
+            });
+            return;
+        }
+        if (catalogModel != null) SERVICE.events().removeTitleListener(catalogModel);
+        catalogModel = new TitleTableModel(SERVICE);
+        SERVICE.events().addTitleListener(catalogModel);
+        table.setModel(catalogModel);
+        catalogModel.reload().exceptionally(err -> {
+            err.printStackTrace();
+            return 0;
+        });
+    }
+
+    // Keeps open views and the search index in sync with changes made from other desks.
+    private static void startCatalogTracking() {
+        if (changePoller != null) return;
+        changePoller = new CatalogChangePoller(POOL, SERVICE.events(),
+                Long.getLong("library.poll.commitLagMillis", CatalogChangePoller.DEFAULT_COMMIT_LAG_MILLIS),
+                Integer.getInteger("library.poll.reconcileRows", CatalogChangePoller.DEFAULT_RECONCILE_ROWS));
+        changePoller.start(CHANGE_POLL_MILLIS);
+    }
+
+    private static void detachCatalogViews() {
+        if (branchCopiesModel != null) {
+            SERVICE.events().removeListener(branchCopiesModel);
+            branchCopiesModel = null;
+        }
+        if (catalogModel != null) {
+            SERVICE.events().removeTitleListener(catalogModel);
+            catalogModel = null;
+        }
+        if (searchModel != null) {
+            SERVICE.events().removeListener(searchModel);
+            searchModel = null;
+        }
+    }
+
+    // ================= LOGIC: CATALOG SEARCH =================
+    // One streaming pass over `books` at startup; afterwards CatalogEvents keep it current.
+    private static void buildSearchIndex() {
+        SERVICE.events().addListener(SEARCH_INDEX);
+        long start = System.nanoTime();
+        CompletableFuture<Integer> built = BRANCH_MODE
+                ? SERVICE.perform("buildSearchIndex", (repo, call) -> {
+                    SEARCH_INDEX.build(repo, call);
+                    return SEARCH_INDEX.size();
+                })
+                : SERVICE.submit("buildSearchIndex", (conn, call) -> {
+                    SEARCH_INDEX.build(conn);
+                    return SEARCH_INDEX.size();
+                });
+        built.whenComplete((copies, err) -> {
+            if (err != null) {
+                System.err.println("Failed to build the search index.");
+                err.printStackTrace();
+            } else {
+                System.out.printf("Search index ready: %d copies in %d ms%n", copies, (System.nanoTime() - start) / 1_000_000);
+            }
+        });
+    }
+
+    // Typing swaps the table over to index hits; clearing the box brings back the full catalog.
+    private static JPanel createSearchPanel(JTable bookTable) {
+        JPanel searchPanel = new JPanel(new BorderLayout(10, 0));
+        searchPanel.setOpaque(false);
+        JTextField txtSearch = new JTextField();
+        txtSearch.setToolTipText("Search title, author or category (prefixes work: \"eff jav\")");
+        JLabel lblResult = new JLabel(" ");
+        lblResult.setForeground(new Color(127, 140, 141));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(txtSearch, BorderLayout.CENTER);
+        searchPanel.add(lblResult, BorderLayout.EAST);
+
+        searchModel = new SearchResultsModel();
+        SERVICE.events().addListener(searchModel);
+        SearchResultsModel results = searchModel;
+        TableModel catalog = bookTable.getModel();
+
+        Timer debounce = new Timer(SEARCH_DEBOUNCE_MILLIS, e -> {
+            String query = txtSearch.getText().trim();
+            if (query.isEmpty()) {
+                bookTable.setModel(catalog);
+                lblResult.setText(" ");
+                return;
+            }
+            if (!SEARCH_INDEX.isReady()) {
+                lblResult.setText("Indexing catalog...");
+                return;
+            }
+            CatalogIndex.Result result = SEARCH_INDEX.search(query, CatalogIndex.DEFAULT_LIMIT);
+            METRICS.operation("search").record(result.nanos, false);
+            results.setRows(result.rows);
+            if (bookTable.getModel() != results) bookTable.setModel(results);
+            lblResult.setText(String.format("%d matching titles, %.2f ms", result.matchingWorks, result.nanos / 1e6));
+        });
+        debounce.setRepeats(false);
+        txtSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+        return searchPanel;
+    }
+
+    // ================= BACKGROUND TASKS =================
+    // Shows a cancellable progress dialog while the database work runs off the EDT.
+    // onSuccess runs on the EDT; failures are reported with a dialog, cancellation is silent.
+    private static <T> CompletableFuture<T> runInBackground(String message, CompletableFuture<T> task, Consumer<T> onSuccess) {
+        JDialog progress = new JDialog(mainFrame, "Please wait", Dialog.ModalityType.MODELESS);
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        JButton btnCancel = new JButton("Cancel");
+        btnCancel.addActionListener(e -> task.cancel(true));
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 20, 15, 20));
+        panel.add(new JLabel(message), BorderLayout.NORTH);
+        panel.add(bar, BorderLayout.CENTER);
+        panel.add(btnCancel, BorderLayout.SOUTH);
+        progress.add(panel);
+        progress.pack();
+        progress.setLocationRelativeTo(mainFrame);
+
+        // Only pop the dialog up if the work is noticeably slow, so fast clicks don't flicker.
+        Timer showLater = new Timer(PROGRESS_DELAY_MILLIS, e -> progress.setVisible(true));
+        showLater.setRepeats(false);
+        showLater.start();
+        mainFrame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        task.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            showLater.stop();
+            progress.dispose();
+            mainFrame.setCursor(Cursor.getDefaultCursor());
+            if (task.isCancelled()) return;
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(mainFrame, "Database Error: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            onSuccess.accept(result);
+        }));
+        return task;
+    }
+
+    // ================= LOGIC: ISSUE BOOK =================
+    private static void showIssueBookDialog() {
+        JTextField txtBookID = new JTextField();
+        JTextField txtMemberID = new JTextField();
+        Object[] message = {
+                "Book ID:", txtBookID,
+                "Member ID:", txtMemberID
+        };
+
+        int option = JOptionPane.showConfirmDialog(mainFrame, message, "Issue a Book", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (option == JOptionPane.OK_OPTION) {
+            try {
+                int bookId = Integer.parseInt(txtBookID.getText());
+                int memberId = Integer.parseInt(txtMemberID.getText());
+                performIssue(bookId, memberId);
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(mainFrame, "Please enter valid numeric IDs.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    private static void performIssue(int bookId, int memberId) {
+        runInBackground("Issuing book " + bookId + "...", SERVICE.issue(bookId, memberId), result -> {
+            switch (result.outcome) {
+                case ALREADY_ISSUED:
+                    JOptionPane.showMessageDialog(mainFrame, "Book is already issued!", "Notice", JOptionPane.WARNING_MESSAGE);
+                    break;
+                case NOT_FOUND:
+                    JOptionPane.showMessageDialog(mainFrame, "Book ID not found!", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+                default:
+                    // The table row is already updated through CatalogEvents; no dashboard rebuild needed.
+                    JOptionPane.showMessageDialog(mainFrame, "Book Issued Successfully!\nReturn Due Date: " + result.dueDate, "Success", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    // Double-clicking a title lists its copies, so the desk can see which ids are on the shelf.
+    private static void showCopiesDialog(TitleRow title) {
+        runInBackground("Loading copies...", SERVICE.copiesOf(title), copies -> {
+            String[] columns = {"Book ID", "Status"};
+            Object[][] data = new Object[copies.size()][];
+            int available = 0;
+            for (int i = 0; i < data.length; i++) {
+                BookRow copy = copies.get(i);
+                data[i] = new Object[]{copy.bookId, copy.status};
+                if ("Available".equals(copy.status)) available++;
+            }
+            JTable table = new JTable(data, columns);
+            table.setEnabled(false);
+            JScrollPane scroll = new JScrollPane(table);
+            scroll.setPreferredSize(new Dimension(320, 240));
+
+            JPanel panel = new JPanel(new BorderLayout(0, 10));
+            panel.add(new JLabel(title.title + " by " + title.author + ": "
+                    + available + " of " + copies.size() + " available"), BorderLayout.NORTH);
+            panel.add(scroll, BorderLayout.CENTER);
+            JOptionPane.showMessageDialog(mainFrame, panel, "Copies", JOptionPane.PLAIN_MESSAGE);
+        });
+    }
+
+    // ================= LOGIC: RETURN BOOK =================
+    private static void showReturnBookDialog() {
+        String input = JOptionPane.showInputDialog(mainFrame, "Enter Book ID to Return:");
+        if (input == null || input.trim().isEmpty()) return;
+
+        try {
+            int bookId = Integer.parseInt(input);
+            runInBackground("Returning book " + bookId + "...", SERVICE.returnBook(bookId), result -> {
+                if (result.returned) {
+                    String msg = "Book Returned Successfully.";
+                    int msgType = JOptionPane.INFORMATION_MESSAGE;
+
+                    if (result.fine.signum() > 0) {
+                        msg += "\n\nATTENTION: Book is overdue!\nFine Payable: $" + result.fine;
+                        msgType = JOptionPane.WARNING_MESSAGE;
+                    }
+
+                    JOptionPane.showMessageDialog(mainFrame, msg, "Return Receipt", msgType);
+
+                } else {
+                    JOptionPane.showMessageDialog(mainFrame, "No active issue found for this book ID.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(mainFrame, "Invalid ID format.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // ================= LOGIC: SCAN SESSION =================
+    // For a patron with an armful of books: each scan (a barcode reader types the id and Enter)
+    // joins the queue, and the whole queue is checked out or returned in one go with one receipt.
+    private static void showScanSessionDialog() {
+        JDialog dialog = new JDialog(mainFrame, "Scan Session", Dialog.ModalityType.APPLICATION_MODAL);
+        JRadioButton optCheckout = new JRadioButton("Check out", true);
+        JRadioButton optReturn = new JRadioButton("Return");
+        ButtonGroup kind = new ButtonGroup();
+        kind.add(optCheckout);
+        kind.add(optReturn);
+        JTextField txtMemberID = new JTextField(8);
+        optCheckout.addActionListener(e -> txtMemberID.setEnabled(true));
+        optReturn.addActionListener(e -> txtMemberID.setEnabled(false));
+
+        DefaultListModel<Integer> queued = new DefaultListModel<>();
+        JList<Integer> queueList = new JList<>(queued);
+        JLabel lblCount = new JLabel("0 copies scanned");
+        JTextField txtScan = new JTextField(12);
+        txtScan.addActionListener(e -> {
+            String input = txtScan.getText().trim();
+            txtScan.setText("");
+            if (input.isEmpty()) return;
+            try {
+                int bookId = Integer.parseInt(input);
+                if (queued.contains(bookId)) return; // same copy scanned twice
+                if (queued.size() == CirculationService.MAX_SESSION_SIZE) {
+                    JOptionPane.showMessageDialog(dialog, "A session takes at most " + CirculationService.MAX_SESSION_SIZE
+                            + " copies; commit this one first.", "Notice", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                queued.addElement(bookId);
+                queueList.ensureIndexIsVisible(queued.size() - 1);
+                lblCount.setText(queued.size() + " copies scanned");
+            } catch (NumberFormatException ex) {
+                Toolkit.getDefaultToolkit().beep();
+            }
+        });
+
+        JButton btnRemove = new JButton("Remove Selected");
+        btnRemove.addActionListener(e -> {
+            for (Integer bookId : queueList.getSelectedValuesList()) queued.removeElement(bookId);
+            lblCount.setText(queued.size() + " copies scanned");
+        });
+        JButton btnCommit = new JButton("Commit Session");
+        btnCommit.addActionListener(e -> {
+            if (queued.isEmpty()) return;
+            int memberId = 0;
+            if (optCheckout.isSelected()) {
+                try {
+                    memberId = Integer.parseInt(txtMemberID.getText().trim());
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(dialog, "Please enter a valid numeric Member ID.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+            }
+            int[] bookIds = new int[queued.size()];
+            for (int i = 0; i < bookIds.length; i++) bookIds[i] = queued.get(i);
+            dialog.dispose();
+            if (optCheckout.isSelected()) {
+                runInBackground("Checking out " + bookIds.length + " copies...", SERVICE.issueAll(bookIds, memberId),
+                        LibrarySystem::showReceipt);
+            } else {
+                runInBackground("Returning " + bookIds.length + " copies...", SERVICE.returnAll(bookIds),
+                        LibrarySystem::showReceipt);
+            }
+        });
+        JButton btnCancel = new JButton("Cancel");
+        btnCancel.addActionListener(e -> dialog.dispose());
+
+        JPanel form = new JPanel(new GridLayout(0, 2, 8, 8));
+        form.add(optCheckout);
+        form.add(optReturn);
+        form.add(new JLabel("Member ID:"));
+        form.add(txtMemberID);
+        form.add(new JLabel("Scan Book ID:"));
+        form.add(txtScan);
+
+        JScrollPane scroll = new JScrollPane(queueList);
+        scroll.setPreferredSize(new Dimension(300, 220));
+        JPanel center = new JPanel(new BorderLayout(0, 5));
+        center.add(lblCount, BorderLayout.NORTH);
+        center.add(scroll, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(btnRemove);
+        buttons.add(btnCancel);
+        buttons.add(btnCommit);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 20, 15, 20));
+        panel.add(form, BorderLayout.NORTH);
+        panel.add(center, BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(mainFrame);
+        SwingUtilities.invokeLater(txtScan::requestFocusInWindow);
+        dialog.setVisible(true);
+    }
+
+    private static void showReceipt(BatchReceipt receipt) {
+        JTextArea area = new JTextArea(receipt.format());
+        area.setEditable(false);
+        area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane scroll = new JScrollPane(area);
+        scroll.setPreferredSize(new Dimension(620, Math.min(480, 120 + 18 * receipt.lines.size())));
+        boolean owed = receipt.totalFines().signum() > 0;
+        boolean refused = receipt.completed() < receipt.lines.size();
+        JOptionPane.showMessageDialog(mainFrame, scroll,
+                receipt.kind == BatchReceipt.Kind.CHECKOUT ? "Check-out Receipt" : "Return Receipt",
+                owed || refused ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // ================= LOGIC: ADD BOOK =================
+
+    // ================= LOGIC: ADD BOOK (Admin Only) =================
+    private static void showAddBookDialog() {
+        JTextField txtTitle = new JTextField();
+        JTextField txtAuthor = new JTextField();
+        JTextField txtQuantity = new JTextField("1"); // As per instructions: "by default - 1"
+
+        Object[] message = {
+                "Book Title:", txtTitle,
+                "Author:", txtAuthor,
+                "Quantity/Copies:", txtQuantity
+        };
+
+        int option = JOptionPane.showConfirmDialog(mainFrame, message, "Add New Book(s) to Master List", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (option == JOptionPane.OK_OPTION) {
+            if (txtTitle.getText().trim().isEmpty() || txtAuthor.getText().trim().isEmpty()) {
+                JOptionPane.showMessageDialog(mainFrame, "Title and Author fields are required.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            try {
+                int quantity = Integer.parseInt(txtQuantity.getText().trim());
+                if (quantity < 1 || quantity > BookImporter.MAX_COPIES_PER_ROW) throw new NumberFormatException();
+
+                runInBackground("Adding " + quantity + " copy/copies...",
+                        SERVICE.addCopies(txtTitle.getText().trim(), txtAuthor.getText().trim(), quantity), added -> {
+                    JOptionPane.showMessageDialog(mainFrame, added + " copy/copies of the book added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                });
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(mainFrame, "Please enter a valid numeric quantity (1 to " + BookImporter.MAX_COPIES_PER_ROW + ").", "Input Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    // ================= LOGIC: OVERDUE BACKLOG (Admin Only) =================
+    // Reads the summary the overdue job maintains; "Recalculate now" re-prices it on demand.
+    private static void showOverdueBacklog() {
+        runInBackground("Loading overdue loans...",
+                SERVICE.submit("overdueBacklog", (conn, call) -> OverdueJob.readBacklog(conn, OVERDUE_LIST_LIMIT)), backlog -> {
+            String[] columns = {"Trans ID", "Book ID", "Member ID", "Due Date", "Days Overdue", "Fine ($)"};
+            Object[][] data = new Object[backlog.oldest.size()][];
+            for (int i = 0; i < data.length; i++) {
+                OverdueJob.OverdueLoan loan = backlog.oldest.get(i);
+                data[i] = new Object[]{loan.transId, loan.bookId, loan.memberId, loan.dueDate, loan.daysOverdue, loan.fine};
+            }
+            JTable table = new JTable(data, columns);
+            table.setEnabled(false);
+            JScrollPane scroll = new JScrollPane(table);
+            scroll.setPreferredSize(new Dimension(640, 300));
+
+            String summary = backlog.assessedOn == null
+                    ? "Fines have not been assessed yet."
+                    : backlog.count + " overdue loans, $" + backlog.totalFines.toPlainString()
+                    + " accrued (as of " + backlog.assessedOn + "). Oldest " + data.length + " shown.";
+            JPanel panel = new JPanel(new BorderLayout(0, 10));
+            panel.add(new JLabel(summary), BorderLayout.NORTH);
+            panel.add(scroll, BorderLayout.CENTER);
+
+            Object[] options = {"Recalculate now", "Close"};
+            int choice = JOptionPane.showOptionDialog(mainFrame, panel, "Overdue Loans", JOptionPane.DEFAULT_OPTION,
+                    JOptionPane.PLAIN_MESSAGE, null, options, options[1]);
+            if (choice == 0) {
+                runInBackground("Recalculating fines...", METRICS.track("overdueRecalculate", OVERDUE_JOB.runNow()), report -> showOverdueBacklog());
+            }
+        });
+    }
+
+    // ================= LOGIC: BULK IMPORT (Admin Only) =================
+    // CSV (title,author,category,copies header) or JSON/JSON Lines with the same field names.
+    private static void showBulkImportDialog() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Catalog File (CSV or JSON)");
+        if (chooser.showOpenDialog(mainFrame) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+
+        runInBackground("Importing " + file.getFileName() + "...", SERVICE.importCatalog(file), report -> {
+            JTextArea area = new JTextArea(report.toString());
+            area.setEditable(false);
+            area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            int msgType = report.rejectedCount > 0 || report.stoppedAt != null ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+            JOptionPane.showMessageDialog(mainFrame, new JScrollPane(area), "Import Report", msgType);
+        });
+    }
+}
@@ -0,0 +1,326 @@
+package library;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InvalidAttributeValueException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// ================= OPERATION METRICS =================
+// Named operations (JDBC calls, desk actions, API routes), each with a latency histogram,
+// a call count and an error count, kept two ways:
+// - totals since startup, shown under DB Stats and on the JMX bean library:type=Metrics;
+// - a window since the last periodic report, which is printed and then reset, so an operation
+//   that is getting slower stands out in the log instead of being averaged into the totals.
+// JDBC statements slower than the threshold are logged to stderr with their SQL, and the last
+// few are kept for the bean.
+final class Metrics implements AutoCloseable {
+
+    static final long DEFAULT_SLOW_QUERY_MILLIS = 250;
+    private static final int SLOW_QUERIES_KEPT = 20;
+    private static final int MAX_SQL_LENGTH = 500;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    static final class Operation {
+        final String name;
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram window = new LatencyHistogram();
+        private final LongAdder windowErrors = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos, boolean failed) {
+            total.record(nanos);
+            window.record(nanos);
+            if (failed) {
+                errors.increment();
+                windowErrors.increment();
+            }
+        }
+
+        LatencyHistogram latency() {
+            return total;
+        }
+
+        long errors() {
+            return errors.sum();
+        }
+
+        double errorRate() {
+            long n = total.count();
+            return n == 0 ? 0 : (double) errors.sum() / n;
+        }
+    }
+
+    @FunctionalInterface
+    interface Task<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private volatile long slowQueryNanos;
+    private final LongAdder slowQueries = new LongAdder();
+    private final ArrayDeque<String> recentSlowQueries = new ArrayDeque<>();
+    private volatile ScheduledExecutorService reporter;
+
+    Metrics(long slowQueryMillis) {
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+    }
+
+    Metrics() {
+        this(DEFAULT_SLOW_QUERY_MILLIS);
+    }
+
+    static Metrics fromProperties() {
+        return new Metrics(Long.getLong("library.metrics.slowQueryMillis", DEFAULT_SLOW_QUERY_MILLIS));
+    }
+
+    // Hot paths look their Operation up once and keep it.
+    Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    <T, E extends Exception> T time(String name, Task<T, E> task) throws E {
+        Operation op = operation(name);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = task.run();
+            failed = false;
+            return result;
+        } finally {
+            op.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    // Records from now until the future completes; cancellations are not counted.
+    <T, F extends CompletableFuture<T>> F track(String name, F future) {
+        Operation op = operation(name);
+        long start = System.nanoTime();
+        future.whenComplete((result, error) -> {
+            if (!future.isCancelled()) op.record(System.nanoTime() - start, error != null);
+        });
+        return future;
+    }
+
+    // ================= SLOW QUERIES =================
+    void statementFinished(Operation op, String sql, long nanos, boolean failed) {
+        op.record(nanos, failed);
+        if (nanos < slowQueryNanos) return;
+        slowQueries.increment();
+        String text = sql == null ? "(unknown SQL)" : WHITESPACE.matcher(sql).replaceAll(" ");
+        if (text.length() > MAX_SQL_LENGTH) text = text.substring(0, MAX_SQL_LENGTH) + "...";
+        String entry = String.format("%s %s %.1f ms%s: %s", LocalTime.now().truncatedTo(ChronoUnit.SECONDS),
+                op.name, LatencyHistogram.toMillis(nanos), failed ? " (failed)" : "", text);
+        System.err.println("Slow query: " + entry);
+        synchronized (recentSlowQueries) {
+            if (recentSlowQueries.size() == SLOW_QUERIES_KEPT) recentSlowQueries.removeFirst();
+            recentSlowQueries.addLast(entry);
+        }
+    }
+
+    long slowQueryMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    void setSlowQueryMillis(long millis) {
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    List<String> recentSlowQueries() {
+        synchronized (recentSlowQueries) {
+            return new ArrayList<>(recentSlowQueries);
+        }
+    }
+
+    // ================= REPORTS =================
+    // Totals since startup.
+    String report() {
+        return format(false);
+    }
+
+    // Activity since the previous call, which starts a new window; empty if nothing happened.
+    String windowReport() {
+        return format(true);
+    }
+
+    private String format(boolean window) {
+        StringBuilder sb = new StringBuilder(String.format("%-28s %9s %7s %6s %9s %9s %9s %9s%n",
+                "Operation", "count", "errors", "err%", "mean ms", "p50 ms", "p99 ms", "max ms"));
+        boolean any = false;
+        for (Operation op : new TreeMap<>(operations).values()) {
+            LatencyHistogram h = window ? op.window : op.total;
+            long errors = window ? op.windowErrors.sum() : op.errors.sum();
+            long n = h.count();
+            if (n > 0) {
+                any = true;
+                sb.append(String.format("%-28s %9d %7d %5.1f%% %9.3f %9.3f %9.3f %9.3f%n", op.name, n, errors,
+                        100.0 * errors / n, LatencyHistogram.toMillis(h.meanNanos()),
+                        LatencyHistogram.toMillis(h.percentileNanos(50)), LatencyHistogram.toMillis(h.percentileNanos(99)),
+                        LatencyHistogram.toMillis(h.maxNanos())));
+            }
+            if (window) {
+                h.reset();
+                op.windowErrors.reset();
+            }
+        }
+        sb.append("Slow queries (>= ").append(slowQueryMillis()).append(" ms): ").append(slowQueries.sum());
+        return any || !window ? sb.toString() : "";
+    }
+
+    // Prints the window report every periodMillis, skipping quiet periods.
+    void startReporting(long periodMillis) {
+        if (periodMillis <= 0 || reporter != null) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            String text = windowReport();
+            if (!text.isEmpty()) System.out.println("Metrics for the last " + periodMillis / 1000 + " s:\n" + text);
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (reporter != null) reporter.shutdownNow();
+    }
+
+    // ================= JMX =================
+    // Registers the bean under library:type=Metrics (with ",name=..." when given, e.g. for a
+    // second pool in the same JVM). Failure only costs the JMX view, so it is reported and ignored.
+    void registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("library:type=Metrics" + (name == null ? "" : ",name=" + name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), objectName);
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBean: " + e.getMessage());
+        }
+    }
+
+    // Attributes are "<operation>.<stat>" (e.g. "issue.p99Millis"), so the operations seen so far
+    // appear as plain numbers in JConsole / VisualVM and can be graphed or alerted on.
+    private final class Bean implements DynamicMBean {
+        private final String[] stats = {"count", "errors", "errorRate", "meanMillis", "p50Millis", "p99Millis", "maxMillis"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            switch (attribute) {
+                case "Report":
+                    return report();
+                case "RecentSlowQueries":
+                    return recentSlowQueries().toArray(new String[0]);
+                case "SlowQueryCount":
+                    return slowQueries.sum();
+                case "SlowQueryThresholdMillis":
+                    return slowQueryMillis();
+                default:
+                    break;
+            }
+            int dot = attribute.lastIndexOf('.');
+            Operation op = dot < 0 ? null : operations.get(attribute.substring(0, dot));
+            if (op == null) throw new AttributeNotFoundException(attribute);
+            LatencyHistogram h = op.latency();
+            switch (attribute.substring(dot + 1)) {
+                case "count":
+                    return h.count();
+                case "errors":
+                    return op.errors();
+                case "errorRate":
+                    return op.errorRate();
+                case "meanMillis":
+                    return LatencyHistogram.toMillis(h.meanNanos());
+                case "p50Millis":
+                    return LatencyHistogram.toMillis(h.percentileNanos(50));
+                case "p99Millis":
+                    return LatencyHistogram.toMillis(h.percentileNanos(99));
+                case "maxMillis":
+                    return LatencyHistogram.toMillis(h.maxNanos());
+                default:
+                    throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+            if (!"SlowQueryThresholdMillis".equals(attribute.getName())) throw new AttributeNotFoundException(attribute.getName());
+            if (!(attribute.getValue() instanceof Long)) throw new InvalidAttributeValueException("expected a long");
+            setSlowQueryMillis((Long) attribute.getValue());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String name : attributes) {
+                try {
+                    list.add(new Attribute(name, getAttribute(name)));
+                } catch (AttributeNotFoundException ignored) {
+                    // left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            AttributeList set = new AttributeList();
+            for (Attribute a : attributes.asList()) {
+                try {
+                    setAttribute(a);
+                    set.add(a);
+                } catch (JMException ignored) {
+                    // not settable; omitted from the result
+                }
+            }
+            return set;
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            // No operations are exposed; this is what JMX clients expect for an unknown one.
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            attrs.add(new MBeanAttributeInfo("Report", "java.lang.String", "Totals since startup", true, false, false));
+            attrs.add(new MBeanAttributeInfo("RecentSlowQueries", "[Ljava.lang.String;", "Latest slow statements", true, false, false));
+            attrs.add(new MBeanAttributeInfo("SlowQueryCount", "long", "Statements over the threshold", true, false, false));
+            attrs.add(new MBeanAttributeInfo("SlowQueryThresholdMillis", "long", "Slow statement threshold", true, true, false));
+            for (String op : new TreeMap<>(operations).keySet()) {
+                for (String stat : stats) {
+                    String type = stat.equals("count") || stat.equals("errors") ? "long" : "double";
+                    attrs.add(new MBeanAttributeInfo(op + "." + stat, type, op + " " + stat, true, false, false));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Library operation latencies and error rates",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package library;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// ================= OVERDUE ENGINE =================
+// Periodically re-assesses every open loan that is past due and rebuilds the overdue_loans
+// summary, so the backlog and the fines it has accrued are visible without returning books.
+//
+// One forward-only cursor streams open loans in trans_id order with a small fetch size.
+// They are cut into chunks of primitive arrays and priced in parallel by FineCalculator.
+// Each chunk owns the trans_id range (previous chunk's last id, its last id]: one transaction
+// deletes that range from overdue_loans and batch-inserts the fresh rows, which upserts the
+// loans that are still overdue and drops the ones returned since the last run. At most
+// `parallelism + 1` chunks exist at once, so memory stays flat however many loans are open.
+final class OverdueJob implements AutoCloseable {
+
+    static final int DEFAULT_CHUNK_SIZE = 5_000;
+    private static final int FETCH_SIZE = 1_000;
+
+    private static final String OPEN_LOANS_QUERY =
+            "SELECT trans_id, book_id, member_id, due_date FROM transactions " +
+            "WHERE return_date IS NULL AND due_date < ? ORDER BY trans_id";
+    private static final String CLEAR_RANGE =
+            "DELETE FROM overdue_loans WHERE trans_id > ? AND trans_id <= ?";
+    private static final String CLEAR_TAIL = "DELETE FROM overdue_loans WHERE trans_id > ?";
+    private static final String INSERT_ROW =
+            "INSERT INTO overdue_loans (trans_id, book_id, member_id, due_date, days_overdue, accrued_fine, assessed_on) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final ConnectionSource db;
+    private final FineCalculator fines;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+
+    OverdueJob(ConnectionSource db, FineCalculator fines, int chunkSize, int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) throw new IllegalArgumentException("chunkSize and parallelism must be >= 1");
+        this.db = db;
+        this.fines = fines;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "overdue-job");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger n = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "overdue-worker-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // ================= SCHEDULING =================
+    // Runs are serialised on one thread, so a manual run never overlaps a scheduled one.
+    void start(long initialDelayMillis, long periodMillis) {
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                System.out.println("Overdue job: " + run(LocalDate.now()));
+            } catch (SQLException e) {
+                System.err.println("Overdue job failed.");
+                e.printStackTrace();
+            }
+        }, initialDelayMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    CompletableFuture<Report> runNow() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return run(LocalDate.now());
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, timer);
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // ================= ONE RUN =================
+    static final class Report {
+        final LocalDate asOf;
+        final long overdueLoans;
+        final int chunks;
+        final BigDecimal totalFines;
+        final long elapsedNanos;
+
+        Report(LocalDate asOf, long overdueLoans, int chunks, BigDecimal totalFines, long elapsedNanos) {
+            this.asOf = asOf;
+            this.overdueLoans = overdueLoans;
+            this.chunks = chunks;
+            this.totalFines = totalFines;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double loansPerSecond() {
+            return elapsedNanos == 0 ? 0 : overdueLoans * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("as of %s: %d overdue loans, $%s accrued, %d chunks in %d ms (%.0f loans/s)",
+                    asOf, overdueLoans, totalFines.toPlainString(), chunks, elapsedNanos / 1_000_000, loansPerSecond());
+        }
+    }
+
+    Report run(LocalDate asOf) throws SQLException {
+        long start = System.nanoTime();
+        Semaphore slots = new Semaphore(parallelism + 1);
+        List<CompletableFuture<BigDecimal>> pending = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long loans = 0;
+        int lastId = 0;
+
+        try (Connection conn = db.getConnection();
+             PreparedStatement ps = conn.prepareStatement(OPEN_LOANS_QUERY,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setDate(1, java.sql.Date.valueOf(asOf));
+            try (ResultSet rs = ps.executeQuery()) {
+                Chunk chunk = null;
+                while (failure.get() == null && rs.next()) {
+                    if (chunk == null) chunk = newChunk(slots, lastId);
+                    chunk.add(rs);
+                    loans++;
+                    if (chunk.size == chunkSize) {
+                        lastId = chunk.transIds[chunk.size - 1];
+                        pending.add(submit(chunk, asOf, failure));
+                        chunk = null;
+                    }
+                }
+                if (chunk != null) {
+                    lastId = chunk.transIds[chunk.size - 1];
+                    pending.add(submit(chunk, asOf, failure));
+                }
+            }
+        } finally {
+            // Never leave workers writing after we return, even when the read failed.
+            for (CompletableFuture<BigDecimal> f : pending) f.exceptionally(t -> null).join();
+        }
+
+        Throwable t = failure.get();
+        if (t != null) {
+            throw t instanceof SQLException ? (SQLException) t : new SQLException("Overdue chunk failed", t);
+        }
+
+        try (Connection conn = db.getConnection(); PreparedStatement ps = conn.prepareStatement(CLEAR_TAIL)) {
+            ps.setInt(1, lastId); // loans above the last one seen were returned or are no longer overdue
+            ps.executeUpdate();
+        }
+
+        BigDecimal total = BigDecimal.ZERO.setScale(2);
+        for (CompletableFuture<BigDecimal> f : pending) total = total.add(f.join());
+        return new Report(asOf, loans, pending.size(), total, System.nanoTime() - start);
+    }
+
+    private Chunk newChunk(Semaphore slots, int afterId) throws SQLException {
+        try {
+            slots.acquire(); // back-pressure: wait for a worker to finish before reading further
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Overdue job interrupted", e);
+        }
+        return new Chunk(chunkSize, afterId, slots);
+    }
+
+    private CompletableFuture<BigDecimal> submit(Chunk chunk, LocalDate asOf, AtomicReference<Throwable> failure) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return write(chunk, asOf);
+            } catch (SQLException e) {
+                failure.compareAndSet(null, e);
+                throw new CompletionException(e);
+            } finally {
+                chunk.slots.release();
+            }
+        }, workers);
+    }
+
+    // Prices one chunk and replaces its trans_id range in overdue_loans; returns the chunk's total.
+    private BigDecimal write(Chunk chunk, LocalDate asOf) throws SQLException {
+        long asOfDay = asOf.toEpochDay();
+        java.sql.Date assessedOn = java.sql.Date.valueOf(asOf);
+        try (Connection conn = db.getConnection()) {
+            return CirculationService.inTransaction(conn, () -> {
+                BigDecimal total = BigDecimal.ZERO.setScale(2);
+                try (PreparedStatement clear = conn.prepareStatement(CLEAR_RANGE)) {
+                    clear.setInt(1, chunk.afterId);
+                    clear.setInt(2, chunk.transIds[chunk.size - 1]);
+                    clear.executeUpdate();
+                }
+                try (PreparedStatement insert = conn.prepareStatement(INSERT_ROW)) {
+                    for (int i = 0; i < chunk.size; i++) {
+                        long days = asOfDay - chunk.dueDays[i];
+                        BigDecimal fine = fines.fineForDays(days);
+                        total = total.add(fine);
+                        insert.setInt(1, chunk.transIds[i]);
+                        insert.setInt(2, chunk.bookIds[i]);
+                        if (chunk.memberIds[i] < 0) insert.setNull(3, Types.INTEGER);
+                        else insert.setInt(3, chunk.memberIds[i]);
+                        insert.setDate(4, java.sql.Date.valueOf(LocalDate.ofEpochDay(chunk.dueDays[i])));
+                        insert.setInt(5, (int) days);
+                        insert.setBigDecimal(6, fine);
+                        insert.setDate(7, assessedOn);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                return total;
+            });
+        }
+    }
+
+    // ================= READ SIDE =================
+    static final class OverdueLoan {
+        final int transId;
+        final int bookId;
+        final int memberId;
+        final LocalDate dueDate;
+        final int daysOverdue;
+        final BigDecimal fine;
+
+        OverdueLoan(int transId, int bookId, int memberId, LocalDate dueDate, int daysOverdue, BigDecimal fine) {
+            this.transId = transId;
+            this.bookId = bookId;
+            this.memberId = memberId;
+            this.dueDate = dueDate;
+            this.daysOverdue = daysOverdue;
+            this.fine = fine;
+        }
+    }
+
+    static final class Backlog {
+        final long count;
+        final BigDecimal totalFines;
+        final LocalDate assessedOn;
+        final List<OverdueLoan> oldest;
+
+        Backlog(long count, BigDecimal totalFines, LocalDate assessedOn, List<OverdueLoan> oldest) {
+            this.count = count;
+            this.totalFines = totalFines;
+            this.assessedOn = assessedOn;
+            this.oldest = oldest;
+        }
+    }
+
+    // Totals plus the `limit` longest-overdue loans, as of the last completed run.
+    static Backlog readBacklog(Connection conn, int limit) throws SQLException {
+        long count;
+        BigDecimal total;
+        LocalDate assessedOn;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*), SUM(accrued_fine), MAX(assessed_on) FROM overdue_loans");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            count = rs.getLong(1);
+            total = rs.getBigDecimal(2) == null ? BigDecimal.ZERO.setScale(2) : rs.getBigDecimal(2);
+            assessedOn = rs.getDate(3) == null ? null : rs.getDate(3).toLocalDate();
+        }
+        List<OverdueLoan> oldest = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT trans_id, book_id, member_id, due_date, days_overdue, accrued_fine FROM overdue_loans " +
+                "ORDER BY due_date, trans_id LIMIT ?")) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    oldest.add(new OverdueLoan(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                            rs.getDate(4).toLocalDate(), rs.getInt(5), rs.getBigDecimal(6)));
+                }
+            }
+        }
+        return new Backlog(count, total, assessedOn, oldest);
+    }
+
+    // Open loans for one trans_id range, in column arrays rather than one object per row.
+    private static final class Chunk {
+        final int afterId;
+        final Semaphore slots;
+        final int[] transIds;
+        final int[] bookIds;
+        final int[] memberIds; // -1 for NULL
+        final long[] dueDays;  // LocalDate.toEpochDay()
+        int size;
+
+        Chunk(int capacity, int afterId, Semaphore slots) {
+            this.afterId = afterId;
+            this.slots = slots;
+            this.transIds = new int[capacity];
+            this.bookIds = new int[capacity];
+            this.memberIds = new int[capacity];
+            this.dueDays = new long[capacity];
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            transIds[size] = rs.getInt(1);
+            bookIds[size] = rs.getInt(2);
+            int member = rs.getInt(3);
+            memberIds[size] = rs.wasNull() ? -1 : member;
+            dueDays[size] = rs.getDate(4).toLocalDate().toEpochDay();
+            size++;
+        }
+    }
+}
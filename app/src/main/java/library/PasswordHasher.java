@@ -0,0 +1,119 @@
+package library;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// ================= PASSWORD HASHING =================
+// Stored format: "pbkdf2-sha256$<iterations>$<salt>$<hash>" (salt and hash base64), so the
+// work factor can be raised later without invalidating existing passwords: anything hashed
+// with fewer iterations, or with the original unsalted SHA-256 hex, still verifies and is
+// flagged for re-hashing on the next successful login.
+final class PasswordHasher {
+
+    static final String SCHEME = "pbkdf2-sha256";
+    // OWASP's current guidance for PBKDF2-HMAC-SHA256; tune with -Dlibrary.auth.iterations.
+    static final int DEFAULT_ITERATIONS = 600_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // MessageDigest isn't thread-safe and getInstance() walks the provider list every call.
+    private static final InstancePool<MessageDigest> SHA256 = new InstancePool<>(InstancePool.DEFAULT_MAX_IDLE, () -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every JRE", e);
+        }
+    });
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    PasswordHasher(int iterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be >= 1");
+        this.iterations = iterations;
+    }
+
+    int iterations() {
+        return iterations;
+    }
+
+    String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return SCHEME + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    // ================= VERIFY =================
+    enum Verdict { MISMATCH, MATCH, MATCH_NEEDS_REHASH }
+
+    Verdict verify(String password, String stored) {
+        if (stored == null) return Verdict.MISMATCH;
+        if (stored.startsWith(SCHEME + "$")) {
+            String[] parts = stored.split("\\$");
+            if (parts.length != 4) return Verdict.MISMATCH;
+            int storedIterations;
+            byte[] salt;
+            byte[] expected;
+            try {
+                storedIterations = Integer.parseInt(parts[1]);
+                salt = Base64.getDecoder().decode(parts[2]);
+                expected = Base64.getDecoder().decode(parts[3]);
+            } catch (IllegalArgumentException malformed) {
+                return Verdict.MISMATCH;
+            }
+            if (storedIterations < 1) return Verdict.MISMATCH;
+            byte[] actual = pbkdf2(password, salt, storedIterations);
+            if (!MessageDigest.isEqual(actual, expected)) return Verdict.MISMATCH;
+            return storedIterations < iterations ? Verdict.MATCH_NEEDS_REHASH : Verdict.MATCH;
+        }
+        // Legacy rows: unsalted SHA-256 hex from before this scheme existed.
+        if (stored.length() == 64) {
+            byte[] actual = sha256Hex(password).getBytes(StandardCharsets.US_ASCII);
+            return MessageDigest.isEqual(actual, stored.getBytes(StandardCharsets.US_ASCII))
+                    ? Verdict.MATCH_NEEDS_REHASH : Verdict.MISMATCH;
+        }
+        return Verdict.MISMATCH;
+    }
+
+    // Burns the same time as a real verification, so an unknown username can't be told
+    // apart from a wrong password by how long the answer takes.
+    void verifyDummy(String password) {
+        pbkdf2(password, new byte[SALT_BYTES], iterations);
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // ================= LEGACY SHA-256 =================
+    static String sha256Hex(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return toHex(SHA256.apply(digest -> digest.digest(bytes))); // digest() also resets it
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            out[i * 2] = HEX[b >>> 4];
+            out[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,353 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// ================= VERSIONED SCHEMA MIGRATIONS =================
+// Replaces the old "CREATE TABLE IF NOT EXISTS on every start" block. Each migration runs
+// once and is recorded in schema_version; when the schema is already current, startup costs
+// one SELECT MAX(version) instead of a handful of DDL round trips.
+//
+// Two desks may start against a fresh database at the same time, so migrating is serialized:
+// on MySQL by a named GET_LOCK (a row lock would not do, as DDL commits implicitly and drops
+// it), elsewhere only within this JVM, which is as far as an embedded database is shared.
+// Steps still tolerate running twice, for desks on builds from before the lock: tables use
+// IF NOT EXISTS, a column or index that fails to be added but now exists was added by the
+// other desk, and the seed is claimed by its users insert.
+// Append new migrations at the end; never edit one that has shipped.
+final class SchemaMigrator {
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn, Statement stmt) throws SQLException;
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(defineMigrations());
+
+    private static final String LOCK_NAME = "library_schema_migration";
+    // Long enough for the other desk to finish a rebuild of a large table.
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+    private static final Object IN_PROCESS_LOCK = new Object();
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Brings the schema up to date; returns the migrations that were applied (empty on the fast path).
+    static List<Migration> migrate(Connection conn) throws SQLException {
+        try {
+            if (maxVersion(conn) >= latestVersion()) return new ArrayList<>();
+        } catch (SQLException e) {
+            // No schema_version yet; created under the lock below.
+        }
+        if (!isMySql(conn)) {
+            synchronized (IN_PROCESS_LOCK) {
+                return migrateLocked(conn);
+            }
+        }
+        acquireLock(conn);
+        try {
+            return migrateLocked(conn);
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    // The other desk may have finished while we waited for the lock, so the version is read again.
+    private static List<Migration> migrateLocked(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        List<Migration> applied = new ArrayList<>();
+        if (current >= latestVersion()) return applied;
+
+        try (Statement stmt = conn.createStatement()) {
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current) continue;
+                m.step.apply(conn, stmt);
+                record(conn, m);
+                applied.add(m);
+            }
+        }
+        return applied;
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another desk to finish migrating the schema");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    private static int currentVersion(Connection conn) throws SQLException {
+        try {
+            return maxVersion(conn);
+        } catch (SQLException e) {
+            // Missing on a fresh database. Read again rather than assume 0: a desk without the
+            // lock may have just created and filled it, and a real error fails the second time.
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(200) NOT NULL, " +
+                        "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            }
+            return maxVersion(conn);
+        }
+    }
+
+    private static int maxVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void record(Connection conn, Migration m) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // Another desk applied and recorded the same version first; the step itself is idempotent.
+            if (!isDuplicateKey(e)) throw e;
+        }
+    }
+
+    // ================= MIGRATIONS =================
+    private static List<Migration> defineMigrations() {
+        List<Migration> list = new ArrayList<>();
+
+        list.add(new Migration(1, "Base tables and default accounts", (conn, stmt) -> {
+            // 1. Create Users Table
+            stmt.execute("CREATE TABLE IF NOT EXISTS users (" +
+                    "user_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "username VARCHAR(50) UNIQUE NOT NULL, " +
+                    "password_hash VARCHAR(64) NOT NULL, " +
+                    "role ENUM('Admin', 'User') NOT NULL)");
+
+            // 2. Create Books Table
+            stmt.execute("CREATE TABLE IF NOT EXISTS books (" +
+                    "book_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "title VARCHAR(100) NOT NULL, " +
+                    "author VARCHAR(100), " +
+                    "category VARCHAR(50), " +
+                    "status ENUM('Available', 'Issued') DEFAULT 'Available')");
+
+            // 3. Create Transactions Table
+            stmt.execute("CREATE TABLE IF NOT EXISTS transactions (" +
+                    "trans_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "book_id INT, " +
+                    "member_id INT, " +
+                    "issue_date DATE, " +
+                    "due_date DATE, " +
+                    "return_date DATE, " +
+                    "fine_amount DECIMAL(10,2) DEFAULT 0.00, " +
+                    "FOREIGN KEY (book_id) REFERENCES books(book_id))");
+
+            // 4. Inject Default Data if the table is empty
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+                if (!rs.next() || rs.getInt(1) != 0) return;
+            }
+            System.out.println("Initializing fresh database with default accounts...");
+
+            // Admin pass: admin123 | User pass: user123
+            // Usernames are unique, so only one desk gets past this insert; the other skips the books too.
+            try {
+                stmt.execute("INSERT INTO users (username, password_hash, role) VALUES " +
+                        "('admin', '240be518fabd2724ddb6f04eeb1da5967448d7e831c08c8fa822809f74c720a9', 'Admin'), " +
+                        "('user', 'e606e38b0d8c19b24cf0ee3808183162ea7cd63ff7912dbb22b5e803286b4446', 'User')");
+            } catch (SQLException e) {
+                if (isDuplicateKey(e)) return;
+                throw e;
+            }
+
+            stmt.execute("INSERT INTO books (title, author, category) VALUES " +
+                    "('Effective Java', 'Joshua Bloch', 'Tech'), " +
+                    "('Clean Code', 'Robert C. Martin', 'Tech'), " +
+                    "('The Alchemist', 'Paulo Coelho', 'Fiction')");
+        }));
+
+        list.add(new Migration(2, "Change tracking column on books", (conn, stmt) -> {
+            // Lets every desk poll for rows other desks touched (see CatalogChangePoller).
+            addColumnIfMissing(conn, stmt, "books", "last_modified", "TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+            createIndexIfMissing(conn, stmt, "books", "idx_books_last_modified", "last_modified, book_id");
+        }));
+
+        list.add(new Migration(3, "Indexes for circulation hot paths", (conn, stmt) -> {
+            // Return lookup: WHERE book_id = ? AND return_date IS NULL, reading trans_id and due_date.
+            // InnoDB secondary indexes carry the primary key, so this one covers the whole query.
+            createIndexIfMissing(conn, stmt, "transactions", "idx_trans_open_loan", "book_id, return_date, due_date");
+            // Loans per member, open ones first.
+            createIndexIfMissing(conn, stmt, "transactions", "idx_trans_member", "member_id, return_date");
+            createIndexIfMissing(conn, stmt, "books", "idx_books_status", "status");
+            createIndexIfMissing(conn, stmt, "books", "idx_books_title", "title");
+            createIndexIfMissing(conn, stmt, "books", "idx_books_author", "author");
+        }));
+
+        list.add(new Migration(4, "Overdue loan summary", (conn, stmt) -> {
+            // Rebuilt range by range by OverdueJob; one row per open loan that is past due.
+            stmt.execute("CREATE TABLE IF NOT EXISTS overdue_loans (" +
+                    "trans_id INT PRIMARY KEY, " +
+                    "book_id INT NOT NULL, " +
+                    "member_id INT, " +
+                    "due_date DATE NOT NULL, " +
+                    "days_overdue INT NOT NULL, " +
+                    "accrued_fine DECIMAL(12,2) NOT NULL, " +
+                    "assessed_on DATE NOT NULL)");
+            createIndexIfMissing(conn, stmt, "overdue_loans", "idx_overdue_member", "member_id");
+            createIndexIfMissing(conn, stmt, "overdue_loans", "idx_overdue_due", "due_date, trans_id");
+            // Open loans in trans_id order, for the job's streaming scan.
+            createIndexIfMissing(conn, stmt, "transactions", "idx_trans_open_by_id", "return_date, trans_id");
+        }));
+
+        list.add(new Migration(5, "Room for salted password hashes", (conn, stmt) -> {
+            // "pbkdf2-sha256$<iterations>$<salt>$<hash>" no longer fits the old 64-char hex column.
+            if (isMySql(conn)) {
+                stmt.execute("ALTER TABLE users MODIFY password_hash VARCHAR(255) NOT NULL");
+            } else {
+                stmt.execute("ALTER TABLE users ALTER COLUMN password_hash SET DATA TYPE VARCHAR(255)");
+            }
+        }));
+
+        list.add(new Migration(6, "Titles with copy counts, and per-copy rows", (conn, stmt) -> {
+            // One row per (title, author, category); counts are maintained by whoever moves a copy.
+            stmt.execute("CREATE TABLE IF NOT EXISTS titles (" +
+                    "title_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "title VARCHAR(100) NOT NULL, " +
+                    "author VARCHAR(100) NOT NULL DEFAULT '', " +
+                    "category VARCHAR(50) NOT NULL DEFAULT '', " +
+                    "total_copies INT NOT NULL DEFAULT 0, " +
+                    "available_copies INT NOT NULL DEFAULT 0, " +
+                    "version BIGINT NOT NULL DEFAULT 0, " +
+                    "last_modified TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3), " +
+                    "CONSTRAINT uq_titles_work UNIQUE (title, author, category))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS copies (" +
+                    "copy_id INT PRIMARY KEY, " +
+                    "title_id INT NOT NULL, " +
+                    "status ENUM('Available', 'Issued') NOT NULL DEFAULT 'Available', " +
+                    "FOREIGN KEY (copy_id) REFERENCES books(book_id), " +
+                    "FOREIGN KEY (title_id) REFERENCES titles(title_id))");
+            createIndexIfMissing(conn, stmt, "copies", "idx_copies_title", "title_id, copy_id");
+            createIndexIfMissing(conn, stmt, "titles", "idx_titles_last_modified", "last_modified, title_id");
+
+            // Existing copies are moved over in the background by TitleBackfill, not here, so a
+            // large catalog doesn't hold up startup. This row tracks how far it has got.
+            stmt.execute("CREATE TABLE IF NOT EXISTS data_migrations (" +
+                    "name VARCHAR(50) PRIMARY KEY, " +
+                    "position INT NOT NULL DEFAULT 0, " +
+                    "completed_at TIMESTAMP NULL)");
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO data_migrations (name) VALUES (?)")) {
+                ps.setString(1, TitleBackfill.NAME);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                if (!isDuplicateKey(e)) throw e;
+            }
+        }));
+
+        list.add(new Migration(7, "Change tracking columns on transactions", (conn, stmt) -> {
+            // When a loan was opened and when it last changed (its return), so incremental
+            // circulation reports can pick up exactly the activity since their watermark.
+            addColumnIfMissing(conn, stmt, "transactions", "created_at", "TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3)");
+            addColumnIfMissing(conn, stmt, "transactions", "last_modified", "TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+            createIndexIfMissing(conn, stmt, "transactions", "idx_trans_created", "created_at");
+            createIndexIfMissing(conn, stmt, "transactions", "idx_trans_last_modified", "last_modified");
+        }));
+
+        list.add(new Migration(8, "Correct the seeded user password hash", (conn, stmt) -> {
+            // Migration 1 used to seed `user` with sha256("123") while documenting user123; the old
+            // startup reset hid that. Only the untouched seed row is corrected, and like any legacy
+            // hash it is upgraded to PBKDF2 at the next sign-in.
+            stmt.executeUpdate("UPDATE users SET password_hash = " +
+                    "'e606e38b0d8c19b24cf0ee3808183162ea7cd63ff7912dbb22b5e803286b4446' " +
+                    "WHERE username = 'user' " +
+                    "AND password_hash = 'a665a45920422f9d417e4867efdc4fb8a04a1f3fff1fa07e998e86f7f7a27ae3'");
+        }));
+
+        return list;
+    }
+
+    // ================= METADATA HELPERS =================
+    // 23000 = MySQL integrity constraint violation, 23505 = standard unique violation.
+    static boolean isDuplicateKey(SQLException e) {
+        return "23000".equals(e.getSQLState()) || "23505".equals(e.getSQLState());
+    }
+
+    static boolean isMySql(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql");
+    }
+
+    static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                if (name != null && name.toLowerCase(Locale.ROOT).equals(index)) return true;
+            }
+            return false;
+        }
+    }
+
+    static void createIndexIfMissing(Connection conn, Statement stmt, String table, String index, String columns)
+            throws SQLException {
+        if (indexExists(conn, table, index)) return;
+        try {
+            stmt.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        } catch (SQLException e) {
+            // Another desk created it between the check and ours; error codes differ by vendor.
+            if (!indexExists(conn, table, index)) throw e;
+        }
+    }
+
+    static void addColumnIfMissing(Connection conn, Statement stmt, String table, String column, String definition)
+            throws SQLException {
+        if (columnExists(conn, table, column)) return;
+        try {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        } catch (SQLException e) {
+            if (!columnExists(conn, table, column)) throw e;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package library;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+// ================= SEARCH RESULTS MODEL =================
+// Small fixed list of CatalogIndex hits shown in place of the full catalog while the
+// search box has text. Status changes are applied in place so the rows stay truthful.
+final class SearchResultsModel extends AbstractTableModel implements CatalogEvents.Listener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = {"Book ID", "Title", "Author", "Status"};
+
+    private List<BookRow> rows = new ArrayList<>();
+
+    void setRows(List<BookRow> newRows) {
+        rows = new ArrayList<>(newRows);
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        BookRow book = rows.get(row);
+        switch (column) {
+            case 0:
+                return book.bookId;
+            case 1:
+                return book.title;
+            case 2:
+                return book.author;
+            default:
+                return book.status;
+        }
+    }
+
+    @Override
+    public void statusChanged(int bookId, String status) {
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < rows.size(); i++) {
+                BookRow book = rows.get(i);
+                if (book.bookId == bookId && !status.equals(book.status)) {
+                    rows.set(i, book.withStatus(status));
+                    fireTableRowsUpdated(i, i);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void booksAdded(List<BookRow> added) {
+        // New copies show up the next time the query changes.
+    }
+}
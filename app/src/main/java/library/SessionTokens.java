@@ -0,0 +1,103 @@
+package library;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+
+// ================= SIGNED SESSION TOKENS =================
+// "<payload>.<signature>", both base64url. The payload is "username:role:expiresAtSeconds"
+// and the signature is HMAC-SHA256 over it, so checking a token is pure CPU: no session
+// table, no database, and any server holding the same key accepts it.
+//
+// The key comes from -Dlibrary.auth.tokenKey (base64, shared by every server that must
+// accept the same tokens); without it a random per-process key is used, so tokens end
+// when the process does. Tokens can't be revoked before they expire; keep the TTL modest.
+final class SessionTokens {
+
+    static final long DEFAULT_TTL_SECONDS = 8 * 60 * 60;
+
+    static final class Principal {
+        final String username;
+        final String role;
+        final long expiresAtSeconds;
+
+        Principal(String username, String role, long expiresAtSeconds) {
+            this.username = username;
+            this.role = role;
+            this.expiresAtSeconds = expiresAtSeconds;
+        }
+
+        boolean isAdmin() {
+            return "Admin".equals(role);
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final InstancePool<Mac> macs;
+
+    SessionTokens(byte[] keyBytes, long ttlSeconds) {
+        if (keyBytes.length < 32) throw new IllegalArgumentException("token key must be at least 256 bits");
+        this.key = new SecretKeySpec(keyBytes.clone(), "HmacSHA256");
+        this.ttlSeconds = ttlSeconds;
+        this.macs = InstancePool.hmacSha256(key);
+    }
+
+    static SessionTokens fromProperties() {
+        String configured = System.getProperty("library.auth.tokenKey");
+        byte[] keyBytes;
+        if (configured != null) {
+            keyBytes = Base64.getDecoder().decode(configured);
+        } else {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        return new SessionTokens(keyBytes, Long.getLong("library.auth.tokenTtlSeconds", DEFAULT_TTL_SECONDS));
+    }
+
+    String issue(String username, String role) {
+        long expires = System.currentTimeMillis() / 1000 + ttlSeconds;
+        // ':' can't appear in the role; usernames are encoded so they can't forge extra fields.
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(username.getBytes(StandardCharsets.UTF_8)) + ":" + role + ":" + expires;
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        return b64.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + b64.encodeToString(sign(payload));
+    }
+
+    Optional<Principal> verify(String token) {
+        if (token == null) return Optional.empty();
+        int dot = token.indexOf('.');
+        if (dot <= 0) return Optional.empty();
+        String payload;
+        byte[] signature;
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            payload = new String(b64.decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            signature = b64.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException malformed) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) return Optional.empty();
+
+        String[] fields = payload.split(":");
+        if (fields.length != 3) return Optional.empty();
+        long expires;
+        try {
+            expires = Long.parseLong(fields[2]);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (expires < System.currentTimeMillis() / 1000) return Optional.empty();
+        String username = new String(Base64.getUrlDecoder().decode(fields[0]), StandardCharsets.UTF_8);
+        return Optional.of(new Principal(username, fields[1], expires));
+    }
+
+    private byte[] sign(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return macs.apply(mac -> mac.doFinal(bytes));
+    }
+}
@@ -0,0 +1,73 @@
+package library;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// ================= STARTUP TIMINGS =================
+// Records when each startup phase began and how long it took, relative to the moment the
+// JVM was launched, so a slow start can be pinned on a phase instead of guessed at.
+// Phases may run on different threads; report() lists them in start order.
+final class StartupTimings {
+
+    private static final class Phase {
+        final String name;
+        final String thread;
+        final long startMillis;
+        final long endMillis;
+
+        Phase(String name, String thread, long startMillis, long endMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    @FunctionalInterface
+    interface Task<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final List<Phase> phases = new ArrayList<>();
+
+    StartupTimings() {
+        record("JVM start to main", jvmStartMillis, System.currentTimeMillis());
+    }
+
+    <T, E extends Exception> T time(String name, Task<T, E> task) throws E {
+        long start = System.currentTimeMillis();
+        try {
+            return task.run();
+        } finally {
+            record(name, start, System.currentTimeMillis());
+        }
+    }
+
+    // A point in time rather than a span, e.g. "login window visible".
+    void mark(String name) {
+        long now = System.currentTimeMillis();
+        record(name, now, now);
+    }
+
+    private synchronized void record(String name, long startMillis, long endMillis) {
+        phases.add(new Phase(name, Thread.currentThread().getName(), startMillis, endMillis));
+    }
+
+    synchronized String report() {
+        List<Phase> sorted = new ArrayList<>(phases);
+        sorted.sort((a, b) -> Long.compare(a.startMillis, b.startMillis));
+        StringBuilder sb = new StringBuilder("Startup timings (ms since JVM start):\n");
+        for (Phase p : sorted) {
+            if (p.endMillis == p.startMillis && !"JVM start to main".equals(p.name)) {
+                sb.append(String.format("  %-28s at %6d%n", p.name, p.startMillis - jvmStartMillis));
+            } else {
+                sb.append(String.format("  %-28s %6d .. %6d  (%5d ms)  [%s]%n", p.name,
+                        p.startMillis - jvmStartMillis, p.endMillis - jvmStartMillis,
+                        p.endMillis - p.startMillis, p.thread));
+            }
+        }
+        return sb.toString();
+    }
+}
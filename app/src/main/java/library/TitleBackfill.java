@@ -0,0 +1,169 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// ================= TITLE BACKFILL =================
+// Background half of migration 6: walks `books` in book_id order, chunkSize rows per
+// transaction, and registers every copy that isn't in `copies` yet under its title.
+// Progress is kept in data_migrations, so a restart carries on where the last run stopped,
+// and once it has finished a startup costs one primary-key lookup.
+//
+// Each chunk locks its data_migrations row first and then its `books` rows, so desks running
+// it at the same time take turns. A copy issued or returned meanwhile either happened before
+// the chunk (its status is read as it is now) or waits and then finds its `copies` row.
+final class TitleBackfill implements AutoCloseable {
+
+    static final String NAME = "titles-from-books";
+    static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    private final ConnectionSource db;
+    private final CatalogEvents events;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final ExecutorService runner;
+    private volatile boolean closed;
+
+    static final class Report {
+        long copies;
+        int chunks;
+        long elapsedNanos;
+        boolean finished;
+
+        @Override
+        public String toString() {
+            return String.format("%d copies in %d chunks, %d ms%s", copies, chunks, elapsedNanos / 1_000_000,
+                    finished ? "" : " (stopped early)");
+        }
+    }
+
+    TitleBackfill(ConnectionSource db, CatalogEvents events, int chunkSize, long pauseMillis) {
+        if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be >= 1");
+        this.db = db;
+        this.events = events;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.runner = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "title-backfill");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void start() {
+        runner.execute(() -> {
+            try {
+                Report report = run();
+                if (report.copies > 0) System.out.println("Title backfill: " + report);
+            } catch (SQLException e) {
+                System.err.println("Title backfill failed; it will resume on the next start.");
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // Runs until every copy is registered (or close() is called). A short pause between chunks
+    // leaves room for desk traffic on the same tables.
+    Report run() throws SQLException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        try (Connection conn = db.getConnection()) {
+            while (!closed) {
+                List<TitleRow> changed = new ArrayList<>();
+                int registered = CirculationService.inTransaction(conn, () -> {
+                    changed.clear();
+                    return step(conn, changed);
+                });
+                if (registered < 0) {
+                    report.finished = true;
+                    break;
+                }
+                report.chunks++;
+                report.copies += registered;
+                if (!changed.isEmpty()) events.publishTitlesChanged(changed);
+                if (pauseMillis > 0) {
+                    try {
+                        Thread.sleep(pauseMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+        } finally {
+            report.elapsedNanos = System.nanoTime() - start;
+        }
+        return report;
+    }
+
+    // One chunk; returns the number of copies registered, or -1 once there is nothing left.
+    private int step(Connection conn, List<TitleRow> changed) throws SQLException {
+        int position;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT position, completed_at FROM data_migrations WHERE name = ? FOR UPDATE")) {
+            ps.setString(1, NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return -1;
+                position = rs.getInt(1);
+                if (rs.getTimestamp(2) != null) return -1;
+            }
+        }
+
+        List<BookRow> rows = new ArrayList<>(chunkSize);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT book_id, title, author, category, status FROM books WHERE book_id > ? " +
+                "ORDER BY book_id LIMIT ? FOR UPDATE")) {
+            ps.setInt(1, position);
+            ps.setInt(2, chunkSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new BookRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE data_migrations SET completed_at = CURRENT_TIMESTAMP WHERE name = ?")) {
+                ps.setString(1, NAME);
+                ps.executeUpdate();
+            }
+            return -1;
+        }
+        int last = rows.get(rows.size() - 1).bookId;
+
+        // Copies added since migration 6 were registered when they were inserted.
+        Set<Integer> registered = new HashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT copy_id FROM copies WHERE copy_id > ? AND copy_id <= ? FOR UPDATE")) {
+            ps.setInt(1, position);
+            ps.setInt(2, last);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) registered.add(rs.getInt(1));
+            }
+        }
+        List<BookRow> missing = new ArrayList<>(rows.size());
+        for (BookRow row : rows) if (!registered.contains(row.bookId)) missing.add(row);
+        changed.addAll(TitleInventory.registerCopies(conn, missing));
+
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE data_migrations SET position = ? WHERE name = ?")) {
+            ps.setInt(1, last);
+            ps.setString(2, NAME);
+            ps.executeUpdate();
+        }
+        return missing.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        runner.shutdownNow();
+    }
+}
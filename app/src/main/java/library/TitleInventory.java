@@ -0,0 +1,309 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// ================= TITLES & COPIES =================
+// `titles` holds one row per (title, author, category) with running available/total counts,
+// and `copies` one light row per physical copy (copy_id = books.book_id). The dashboard reads
+// `titles` directly, so showing stock never needs a GROUP BY over the copies.
+//
+// Counts only move inside the transaction that changes a copy: issue and return shift
+// available_copies, new copies raise both. Copies that existed before migration 6 are folded in
+// by TitleBackfill; until then a copy without a `copies` row is simply not counted yet.
+//
+// Lock order on every path: books -> copies -> titles.
+final class TitleInventory {
+
+    static final String COLUMNS = "title_id, title, author, category, available_copies, total_copies, version";
+
+    private static final int IN_LIST_CHUNK = 100;
+
+    private TitleInventory() {
+    }
+
+    // ================= READS =================
+    static int count(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM titles");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Keyset page: titles with title_id > afterId, ascending.
+    static List<TitleRow> readPage(Connection conn, int afterId, int limit) throws SQLException {
+        List<TitleRow> page = new ArrayList<>(limit);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + COLUMNS + " FROM titles WHERE title_id > ? ORDER BY title_id LIMIT ?")) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) page.add(read(rs));
+            }
+        }
+        return page;
+    }
+
+    // The individual copies of one title, for the desk to pick a copy id from.
+    static List<BookRow> readCopies(Connection conn, TitleRow title) throws SQLException {
+        List<BookRow> copies = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT copy_id, status FROM copies WHERE title_id = ? ORDER BY copy_id")) {
+            ps.setInt(1, title.titleId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    copies.add(new BookRow(rs.getInt(1), title.title, title.author, title.category, rs.getString(2)));
+                }
+            }
+        }
+        return copies;
+    }
+
+    static TitleRow read(ResultSet rs) throws SQLException {
+        return new TitleRow(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getInt(5), rs.getInt(6), rs.getLong(7));
+    }
+
+    // ================= WRITES (caller's transaction) =================
+    // Moves one copy to `status` and shifts its title's available count. Returns the title's
+    // new counts, or null if the copy isn't in `copies` yet (the backfill will count it as is).
+    static TitleRow copyStatusChanged(Connection conn, int copyId, String status) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE copies SET status = ? WHERE copy_id = ? AND status <> ?")) {
+            ps.setString(1, status);
+            ps.setInt(2, copyId);
+            ps.setString(3, status);
+            if (ps.executeUpdate() == 0) return null;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE titles SET available_copies = available_copies + ?, version = version + 1 " +
+                "WHERE title_id = (SELECT title_id FROM copies WHERE copy_id = ?)")) {
+            ps.setInt(1, "Available".equals(status) ? 1 : -1);
+            ps.setInt(2, copyId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + COLUMNS + " FROM titles WHERE title_id = (SELECT title_id FROM copies WHERE copy_id = ?)")) {
+            ps.setInt(1, copyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    // Batch form of copyStatusChanged, for a scan session: one locking read of the copies, then
+    // one batch per table, titles in ascending id order. Returns the touched titles' new counts.
+    static List<TitleRow> copiesStatusChanged(Connection conn, int[] copyIds, String status) throws SQLException {
+        if (copyIds.length == 0) return new ArrayList<>();
+        List<Integer> moving = new ArrayList<>(copyIds.length);
+        Map<Integer, Integer> delta = new TreeMap<>(); // title_id -> change in available copies
+        int step = "Available".equals(status) ? 1 : -1;
+        StringBuilder sql = new StringBuilder("SELECT copy_id, title_id, status FROM copies WHERE copy_id IN (");
+        for (int i = 0; i < copyIds.length; i++) sql.append(i == 0 ? "?" : ", ?");
+        try (PreparedStatement ps = conn.prepareStatement(sql.append(") ORDER BY copy_id FOR UPDATE").toString())) {
+            for (int i = 0; i < copyIds.length; i++) ps.setInt(i + 1, copyIds[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (status.equals(rs.getString(3))) continue;
+                    moving.add(rs.getInt(1));
+                    delta.merge(rs.getInt(2), step, Integer::sum);
+                }
+            }
+        }
+        if (moving.isEmpty()) return new ArrayList<>();
+
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE copies SET status = ? WHERE copy_id = ?")) {
+            for (int copyId : moving) {
+                ps.setString(1, status);
+                ps.setInt(2, copyId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        int[] ids = new int[delta.size()];
+        int n = 0;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE titles SET available_copies = available_copies + ?, version = version + 1 WHERE title_id = ?")) {
+            for (Map.Entry<Integer, Integer> e : delta.entrySet()) {
+                ps.setInt(1, e.getValue());
+                ps.setInt(2, e.getKey());
+                ps.addBatch();
+                ids[n++] = e.getKey();
+            }
+            ps.executeBatch();
+        }
+        return readTitles(conn, ids);
+    }
+
+    // Adds `books` rows to `copies` under their title (created if new) and raises the counts.
+    // Used for freshly inserted copies and by the backfill. Returns the titles' new counts.
+    static List<TitleRow> registerCopies(Connection conn, List<BookRow> rows) throws SQLException {
+        if (rows.isEmpty()) return new ArrayList<>();
+        Map<String, Group> groups = new LinkedHashMap<>();
+        for (BookRow row : rows) {
+            String author = row.author == null ? "" : row.author;
+            String category = row.category == null ? "" : row.category;
+            groups.computeIfAbsent(key(row.title, author, category),
+                    k -> new Group(row.title, author, category)).add(row);
+        }
+        List<Group> all = new ArrayList<>(groups.values());
+        resolveTitleIds(conn, all);
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO copies (copy_id, title_id, status) VALUES (?, ?, ?)")) {
+            for (Group g : all) {
+                for (BookRow row : g.rows) {
+                    ps.setInt(1, row.bookId);
+                    ps.setInt(2, g.titleId);
+                    ps.setString(3, row.status);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        int[] ids = new int[all.size()];
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE titles SET total_copies = total_copies + ?, available_copies = available_copies + ?, " +
+                "version = version + 1 WHERE title_id = ?")) {
+            for (int i = 0; i < all.size(); i++) {
+                Group g = all.get(i);
+                ps.setInt(1, g.rows.size());
+                ps.setInt(2, g.available);
+                ps.setInt(3, g.titleId);
+                ps.addBatch();
+                ids[i] = g.titleId;
+            }
+            ps.executeBatch();
+        }
+        return readTitles(conn, ids);
+    }
+
+    // Finds existing titles with one row-value IN query per chunk, then batch-inserts the rest.
+    private static void resolveTitleIds(Connection conn, List<Group> groups) throws SQLException {
+        Map<String, Group> byKey = new LinkedHashMap<>();
+        for (Group g : groups) byKey.put(key(g.title, g.author, g.category), g);
+        for (int from = 0; from < groups.size(); from += IN_LIST_CHUNK) {
+            List<Group> chunk = groups.subList(from, Math.min(groups.size(), from + IN_LIST_CHUNK));
+            StringBuilder sql = new StringBuilder(
+                    "SELECT title_id, title, author, category FROM titles WHERE (title, author, category) IN (");
+            for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            try (PreparedStatement ps = conn.prepareStatement(sql.append(')').toString())) {
+                int p = 1;
+                for (Group g : chunk) {
+                    ps.setString(p++, g.title);
+                    ps.setString(p++, g.author);
+                    ps.setString(p++, g.category);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Group g = byKey.get(key(rs.getString(2), rs.getString(3), rs.getString(4)));
+                        if (g != null) g.titleId = rs.getInt(1);
+                    }
+                }
+            }
+        }
+
+        List<Group> missing = new ArrayList<>();
+        for (Group g : groups) if (g.titleId == 0) missing.add(g);
+        if (missing.isEmpty()) return;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO titles (title, author, category) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (Group g : missing) {
+                ps.setString(1, g.title);
+                ps.setString(2, g.author);
+                ps.setString(3, g.category);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Group g : missing) {
+                    if (!keys.next()) break;
+                    g.titleId = keys.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            // Another desk created one of these titles first. Depending on the driver some of the
+            // batch may have gone in; settle each one individually (our own rows are found too).
+            if (!SchemaMigrator.isDuplicateKey(e)) throw e;
+            for (Group g : missing) g.titleId = 0;
+        }
+        for (Group g : missing) if (g.titleId == 0) g.titleId = resolveOne(conn, g);
+    }
+
+    private static int resolveOne(Connection conn, Group g) throws SQLException {
+        // Locking read: sees a title committed by another desk after this transaction began.
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT title_id FROM titles WHERE title = ? AND author = ? AND category = ? FOR UPDATE")) {
+            ps.setString(1, g.title);
+            ps.setString(2, g.author);
+            ps.setString(3, g.category);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO titles (title, author, category) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, g.title);
+            ps.setString(2, g.author);
+            ps.setString(3, g.category);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                if (!keys.next()) throw new SQLException("No key returned for new title '" + g.title + "'");
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    // Case-sensitive here; a title that only differs by case under MySQL's collation falls
+    // through to the insert, hits the unique key, and is then found by resolveOne.
+    private static String key(String title, String author, String category) {
+        return title + '\0' + author + '\0' + category;
+    }
+
+    private static List<TitleRow> readTitles(Connection conn, int[] ids) throws SQLException {
+        int[] sorted = Arrays.stream(ids).sorted().distinct().toArray();
+        List<TitleRow> rows = new ArrayList<>(sorted.length);
+        for (int from = 0; from < sorted.length; from += IN_LIST_CHUNK) {
+            int to = Math.min(sorted.length, from + IN_LIST_CHUNK);
+            StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM titles WHERE title_id IN (");
+            for (int i = from; i < to; i++) sql.append(i == from ? "?" : ", ?");
+            sql.append(") ORDER BY title_id");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = from; i < to; i++) ps.setInt(i - from + 1, sorted[i]);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) rows.add(read(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static final class Group {
+        final String title;
+        final String author;
+        final String category;
+        final List<BookRow> rows = new ArrayList<>();
+        int available;
+        int titleId;
+
+        Group(String title, String author, String category) {
+            this.title = title;
+            this.author = author;
+            this.category = category;
+        }
+
+        void add(BookRow row) {
+            rows.add(row);
+            if ("Available".equals(row.status)) available++;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package library;
+
+// One row of the `titles` table: a (title, author, category) with its running copy counts.
+// `version` goes up with every committed change, so views can ignore stale updates.
+final class TitleRow {
+    final int titleId;
+    final String title;
+    final String author;
+    final String category;
+    final int available;
+    final int total;
+    final long version;
+
+    TitleRow(int titleId, String title, String author, String category, int available, int total, long version) {
+        this.titleId = titleId;
+        this.title = title;
+        this.author = author;
+        this.category = category;
+        this.available = available;
+        this.total = total;
+        this.version = version;
+    }
+}
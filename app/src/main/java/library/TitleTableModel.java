@@ -0,0 +1,222 @@
+package library;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// ================= LAZY TITLE CATALOG MODEL =================
+// The dashboard catalog: one row per title with its available/total copy counts, read straight
+// from `titles`, so no GROUP BY over copies is ever needed to draw it.
+//
+// Only the pages the user actually scrolls to are fetched, PAGE_SIZE rows at a time, using
+// keyset pagination on title_id; at most MAX_PAGES pages are kept (LRU), so heap use stays
+// flat however large the catalog grows. Queries run on the CirculationService executor; a page
+// that is still loading renders as blank cells and is repainted once its rows arrive on the EDT.
+// All fields except pageCursors are only touched on the EDT.
+//
+// Issues, returns and new copies arrive as title events carrying the title's new counts, so a
+// change repaints one row. Each row keeps its version and older events are ignored.
+final class TitleTableModel extends AbstractTableModel implements CatalogEvents.TitleListener {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int PAGE_SIZE = 200;
+    static final int MAX_PAGES = 16;
+
+    private static final String[] COLUMNS = {"Title ID", "Title", "Author", "Category", "Available", "Total"};
+
+    // Index-only skip over the primary key to find where a not-yet-visited page starts.
+    private static final String SEEK_QUERY =
+            "SELECT title_id FROM titles WHERE title_id > ? ORDER BY title_id LIMIT 1 OFFSET ?";
+
+    private final CirculationService service;
+    private int rowCount;
+    // page index -> token of the load in flight; a completed load only lands if it is still current
+    private final Map<Integer, Integer> loading = new HashMap<>();
+    private int nextToken;
+
+    // page index -> last title_id of the previous page (the keyset cursor for that page);
+    // written by the loader threads, hence concurrent.
+    private final ConcurrentSkipListMap<Integer, Integer> pageCursors = new ConcurrentSkipListMap<>();
+
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    TitleTableModel(CirculationService service) {
+        this.service = service;
+        pageCursors.put(0, 0);
+    }
+
+    // Re-counts the titles in the background, then drops every cached page.
+    CompletableFuture<Integer> reload() {
+        CompletableFuture<Integer> count = service.submit("titleCount", (conn, call) -> TitleInventory.count(conn));
+        count.thenAccept(n -> SwingUtilities.invokeLater(() -> {
+            pages.clear();
+            loading.clear();
+            pageCursors.clear();
+            pageCursors.put(0, 0);
+            rowCount = n;
+            fireTableDataChanged();
+        }));
+        return count;
+    }
+
+    // The title on a view row, or null if its page hasn't loaded yet.
+    TitleRow titleAt(int row) {
+        Page page = pages.get(row / PAGE_SIZE);
+        int offset = row % PAGE_SIZE;
+        return page == null || offset >= page.size ? null : page.rows[offset];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 || column >= 4 ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Page page = pageFor(row / PAGE_SIZE);
+        int offset = row % PAGE_SIZE;
+        if (page == null || offset >= page.size) return null;
+        TitleRow title = page.rows[offset];
+        switch (column) {
+            case 0:
+                return title.titleId;
+            case 1:
+                return title.title;
+            case 2:
+                return title.author;
+            case 3:
+                return title.category;
+            case 4:
+                return title.available;
+            default:
+                return title.total;
+        }
+    }
+
+    // ================= INCREMENTAL UPDATES =================
+    @Override
+    public void titleChanged(TitleRow row) {
+        SwingUtilities.invokeLater(() -> {
+            for (Map.Entry<Integer, Page> entry : pages.entrySet()) {
+                Page page = entry.getValue();
+                int offset = Arrays.binarySearch(page.ids, 0, page.size, row.titleId);
+                if (offset < 0) continue;
+                if (row.version > page.rows[offset].version) {
+                    page.rows[offset] = row;
+                    int viewRow = entry.getKey() * PAGE_SIZE + offset;
+                    fireTableRowsUpdated(viewRow, viewRow);
+                }
+                return;
+            }
+        });
+    }
+
+    // New ids are always larger than existing ones, so they are appended at the end of the
+    // keyset order. Only the (partial) tail page needs to be fetched again.
+    @Override
+    public void titlesAdded(List<TitleRow> rows) {
+        SwingUtilities.invokeLater(() -> {
+            int first = rowCount;
+            int tailPage = first / PAGE_SIZE;
+            pages.keySet().removeIf(index -> index >= tailPage);
+            loading.keySet().removeIf(index -> index >= tailPage); // stale tail loads are ignored
+            rowCount += rows.size();
+            fireTableRowsInserted(first, rowCount - 1);
+        });
+    }
+
+    private Page pageFor(int pageIndex) {
+        Page page = pages.get(pageIndex);
+        if (page == null && !loading.containsKey(pageIndex)) requestPage(pageIndex);
+        return page;
+    }
+
+    private void requestPage(int pageIndex) {
+        int token = ++nextToken;
+        loading.put(pageIndex, token);
+        service.submit("titlePage", (conn, call) -> fetchPage(conn, pageIndex))
+                .whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+                    if (!Integer.valueOf(token).equals(loading.get(pageIndex))) return; // superseded meanwhile
+                    loading.remove(pageIndex);
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    pages.put(pageIndex, page);
+                    int first = pageIndex * PAGE_SIZE;
+                    int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                    if (last >= first) fireTableRowsUpdated(first, last);
+                }));
+    }
+
+    private Page fetchPage(Connection conn, int pageIndex) throws SQLException {
+        int afterId = cursorFor(conn, pageIndex);
+        Page page = new Page();
+        for (TitleRow row : TitleInventory.readPage(conn, afterId, PAGE_SIZE)) {
+            int i = page.size++;
+            page.ids[i] = row.titleId;
+            page.rows[i] = row;
+        }
+        if (page.size == PAGE_SIZE) pageCursors.put(pageIndex + 1, page.ids[PAGE_SIZE - 1]);
+        return page;
+    }
+
+    // Finds the keyset cursor for a page, seeking forward from the nearest known page if needed.
+    private int cursorFor(Connection conn, int pageIndex) throws SQLException {
+        Map.Entry<Integer, Integer> known = pageCursors.floorEntry(pageIndex);
+        if (known.getKey() == pageIndex) return known.getValue();
+
+        int skip = (pageIndex - known.getKey()) * PAGE_SIZE - 1;
+        try (PreparedStatement ps = conn.prepareStatement(SEEK_QUERY)) {
+            ps.setInt(1, known.getValue());
+            ps.setInt(2, skip);
+            try (ResultSet rs = ps.executeQuery()) {
+                int cursor = rs.next() ? rs.getInt(1) : Integer.MAX_VALUE;
+                pageCursors.put(pageIndex, cursor);
+                return cursor;
+            }
+        }
+    }
+
+    private static final class Page {
+        final int[] ids = new int[PAGE_SIZE];
+        final TitleRow[] rows = new TitleRow[PAGE_SIZE];
+        int size;
+    }
+}
@@ -0,0 +1,99 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A malformed record is rejected and the import carries on from the next line; only an
+// unreadable JSON array stops it, and then the copies before the error are still kept.
+class BookImporterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unterminatedCsvQuoteRejectsOneRecord() throws Exception {
+        BookImporter.ImportReport report = importFile("bad.csv",
+                "title,author,category,copies\n" +
+                "A,Auth,Tech,1\n" +
+                "\"Broken,Auth,Tech,1\n" +
+                "B,Auth,Tech,2\n" +
+                "C,Auth,Tech,1\n");
+        assertNull(report.stoppedAt);
+        assertEquals(1, report.rejectedCount);
+        assertEquals(3, report.rejections.get(0).line);
+        assertEquals(4, report.copiesInserted);
+    }
+
+    // Excel writes a UTF-8 BOM; it must not end up in the first header name.
+    @Test
+    void csvWithByteOrderMarkImports() throws Exception {
+        BookImporter.ImportReport report = importFile("bom.csv", "\uFEFFtitle,author\nA,Auth\nB,Auth\n");
+        assertEquals(0, report.rejectedCount);
+        assertEquals(2, report.copiesInserted);
+    }
+
+    @Test
+    void jsonArrayWithByteOrderMarkImports() throws Exception {
+        BookImporter.ImportReport report = importFile("bom.json",
+                "\uFEFF[{\"title\":\"A\",\"author\":\"X\"},{\"title\":\"B\",\"author\":\"Y\"}]");
+        assertNull(report.stoppedAt);
+        assertEquals(2, report.copiesInserted);
+    }
+
+    @Test
+    void jsonLinesWithByteOrderMarkImports() throws Exception {
+        BookImporter.ImportReport report = importFile("bom.jsonl",
+                "\uFEFF{\"title\":\"A\",\"author\":\"X\"}\n{\"title\":\"B\",\"author\":\"Y\"}\n");
+        assertEquals(0, report.rejectedCount);
+        assertEquals(2, report.copiesInserted);
+    }
+
+    @Test
+    void quotedCsvFieldMaySpanLines() throws Exception {
+        BookImporter.ImportReport report = importFile("ok.csv", "title,author\n\"Multi\nline\",Auth\nD,Auth\n");
+        assertEquals(0, report.rejectedCount);
+        assertEquals(2, report.copiesInserted);
+    }
+
+    @Test
+    void badJsonLineRejectsOneRecord() throws Exception {
+        BookImporter.ImportReport report = importFile("bad.jsonl",
+                "{\"title\":\"A\",\"author\":\"X\"}\n" +
+                "{\"title\":\"B\",\"author\":\n" +
+                "{\"title\":\"C\",\"author\":\"Y\",\"copies\":3}\n");
+        assertNull(report.stoppedAt);
+        assertEquals(1, report.rejectedCount);
+        assertEquals(2, report.rejections.get(0).line);
+        assertEquals(4, report.copiesInserted);
+    }
+
+    @Test
+    void brokenJsonArrayStopsWithPartialReport() throws Exception {
+        BookImporter.ImportReport report = importFile("bad.json",
+                "[{\"title\":\"A\",\"author\":\"X\"},\n" +
+                "{\"title\":\"B\" \"author\":\"Y\"},\n" +
+                "{\"title\":\"C\",\"author\":\"Z\"}]");
+        assertNotNull(report.stoppedAt);
+        assertEquals(2, report.stoppedAt.line);
+        assertEquals(1, report.copiesInserted);
+    }
+
+    private BookImporter.ImportReport importFile(String name, String content) throws Exception {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        try (TestDatabase db = new TestDatabase(2);
+             CirculationService service = new CirculationService(db.pool, 2)) {
+            long before = db.count("SELECT COUNT(*) FROM books");
+            BookImporter.ImportReport report = service.importCatalog(file).join();
+            assertEquals(before + report.copiesInserted, db.count("SELECT COUNT(*) FROM books"));
+            return report;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+
+// A transaction that stays open past the commit lag writes its last_modified behind the
+// poller's cursor; only the rolling reconcile picks it up.
+class CatalogChangePollerTest {
+
+    private static final long LAG_MILLIS = 50;
+
+    @Test
+    void reconcileCatchesChangeCommittedBehindTheCursor() throws Exception {
+        assertEquals("Issued", statusSeenAfterLongTransaction(CatalogChangePoller.DEFAULT_RECONCILE_ROWS));
+    }
+
+    @Test
+    void withoutReconcileTheLongTransactionIsMissed() throws Exception {
+        assertNull(statusSeenAfterLongTransaction(0));
+    }
+
+    private static String statusSeenAfterLongTransaction(int reconcileRows) throws Exception {
+        try (TestDatabase db = new TestDatabase(2)) {
+            int bookId = db.addBooks(3) + 1;
+            CatalogEvents events = new CatalogEvents();
+            Map<Integer, String> seen = new ConcurrentHashMap<>();
+            events.addListener(new CatalogEvents.Listener() {
+                @Override
+                public void statusChanged(int id, String status) {
+                    seen.put(id, status);
+                }
+
+                @Override
+                public void booksAdded(List<BookRow> rows) {
+                    fail("no copies were added");
+                }
+            });
+
+            try (CatalogChangePoller poller = new CatalogChangePoller(db.pool, events, LAG_MILLIS, reconcileRows);
+                 Connection slow = db.connect()) {
+                poller.poll(); // seeds the cursor at "now"
+                slow.setAutoCommit(false);
+                try (Statement stmt = slow.createStatement()) {
+                    stmt.executeUpdate("UPDATE books SET status = 'Issued' WHERE book_id = " + bookId);
+                }
+                Thread.sleep(LAG_MILLIS);
+                try (Connection other = db.connect(); Statement stmt = other.createStatement()) {
+                    stmt.executeUpdate("UPDATE books SET status = 'Issued' WHERE book_id = " + (bookId + 1));
+                }
+                Thread.sleep(LAG_MILLIS * 4);
+                poller.poll(); // the other desk's change settles the cursor past the open one
+                Thread.sleep(LAG_MILLIS * 4);
+                slow.commit();
+                seen.clear();
+                poller.poll();
+                return seen.get(bookId);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+// Many desks issue and return a handful of copies at random through the real CirculationService.
+// Afterwards there is at most one open loan per copy, every 'Issued' copy has exactly one, and
+// the success counts add up. (Throughput under the same load: IssueThroughputBenchmark.)
+class CirculationConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 400;
+    private static final int BOOKS = 6; // few copies => heavy contention
+
+    @Test
+    void concurrentIssueAndReturnNeverDoubleIssue() throws Exception {
+        try (TestDatabase db = new TestDatabase(THREADS);
+             CirculationService service = new CirculationService(db.pool, THREADS)) {
+            int firstId = db.addBooks(BOOKS);
+            AtomicLong issued = new AtomicLong();
+            AtomicLong returned = new AtomicLong();
+            List<Throwable> errors = new ArrayList<>();
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> desks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Thread desk = new Thread(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                        for (int i = 0; i < OPS_PER_THREAD; i++) {
+                            int bookId = firstId + rnd.nextInt(BOOKS);
+                            if (rnd.nextBoolean()) {
+                                if (service.issue(bookId, rnd.nextInt(1, 500)).join().outcome
+                                        == CirculationService.IssueOutcome.ISSUED) issued.incrementAndGet();
+                            } else if (service.returnBook(bookId).join().returned) {
+                                returned.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }, "desk-" + t);
+                desks.add(desk);
+                desk.start();
+            }
+            start.countDown();
+            for (Thread desk : desks) desk.join();
+
+            assertEquals(List.of(), errors);
+            assertEquals(0, db.count("SELECT COUNT(*) FROM (SELECT book_id FROM transactions " +
+                    "WHERE return_date IS NULL GROUP BY book_id HAVING COUNT(*) > 1) doubles"), "copies with two open loans");
+            assertEquals(0, db.count("SELECT COUNT(*) FROM (SELECT b.book_id FROM books b " +
+                    "LEFT JOIN transactions t ON t.book_id = b.book_id AND t.return_date IS NULL " +
+                    "GROUP BY b.book_id, b.status " +
+                    "HAVING (b.status = 'Issued') <> (COUNT(t.trans_id) = 1)) mismatched"), "status disagrees with open loans");
+            assertEquals(issued.get() - returned.get(), db.count("SELECT COUNT(*) FROM transactions WHERE return_date IS NULL"));
+        }
+    }
+
+    // A copy marked Issued without an open loan is refused and left exactly as it was.
+    @Test
+    void returnWithoutOpenLoanLeavesCopyUntouched() throws Exception {
+        try (TestDatabase db = new TestDatabase(2);
+             CirculationService service = new CirculationService(db.pool, 2)) {
+            int bookId = db.addBooks(1);
+            try (Connection conn = db.connect(); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE books SET status = 'Issued' WHERE book_id = " + bookId);
+            }
+
+            assertFalse(service.returnBook(bookId).join().returned);
+            assertEquals(1, db.count("SELECT COUNT(*) FROM books WHERE status = 'Issued' AND book_id = " + bookId));
+            assertEquals(0, db.count("SELECT COUNT(*) FROM transactions"));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.junit.jupiter.api.Test;
+
+// Statement cache lending and connection reset between borrowers.
+class ConnectionPoolTest {
+
+    private static final String BY_ID = "SELECT title FROM books WHERE book_id = ?";
+
+    // A nested prepare of the same SQL must not clear the outer statement's parameters
+    // or close the result set the outer caller is still reading.
+    @Test
+    void sameSqlPreparedTwiceInOneBorrowGetsSeparateStatements() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            int first = db.addBooks(2);
+            try (Connection conn = db.pool.getConnection();
+                 PreparedStatement outer = conn.prepareStatement(BY_ID)) {
+                outer.setInt(1, first);
+                try (ResultSet rs = outer.executeQuery()) {
+                    try (PreparedStatement inner = conn.prepareStatement(BY_ID)) {
+                        assertNotSame(outer, inner);
+                        inner.setInt(1, first + 1);
+                        try (ResultSet nested = inner.executeQuery()) {
+                            assertTrue(nested.next());
+                            assertEquals("Title 1", nested.getString(1));
+                        }
+                    }
+                    assertTrue(rs.next());
+                    assertEquals("Title 0", rs.getString(1));
+                }
+                try (ResultSet again = outer.executeQuery()) {
+                    assertTrue(again.next());
+                    assertEquals("Title 0", again.getString(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void returnedStatementIsReusedFromTheCache() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            try (Connection conn = db.pool.getConnection()) {
+                PreparedStatement first;
+                try (PreparedStatement ps = conn.prepareStatement(BY_ID)) {
+                    first = ps;
+                }
+                assertTrue(first.isClosed());
+                try (PreparedStatement ps = conn.prepareStatement(BY_ID)) {
+                    assertSame(first, ps);
+                    assertFalse(ps.isClosed());
+                }
+            }
+            assertEquals(1, db.pool.stats().statementHits);
+        }
+    }
+
+    // With a one-entry cache, preparing other SQL must not close a statement that is still lent out.
+    @Test
+    void evictionWaitsForTheStatementToBeReturned() throws Exception {
+        try (TestDatabase db = new TestDatabase(1);
+             ConnectionPool pool = new ConnectionPool(db.url, "sa", "", 1, 30_000, 300_000, 0, 1)) {
+            int first = db.addBooks(1);
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement busy = conn.prepareStatement(BY_ID)) {
+                busy.setInt(1, first);
+                try (PreparedStatement other = conn.prepareStatement("SELECT COUNT(*) FROM books")) {
+                    other.executeQuery().close();
+                }
+                try (ResultSet rs = busy.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals("Title 0", rs.getString(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void nextBorrowerGetsDefaultIsolationAndReadOnly() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            int isolation;
+            boolean readOnly;
+            try (Connection conn = db.pool.getConnection()) {
+                isolation = conn.getTransactionIsolation();
+                readOnly = conn.isReadOnly();
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+                conn.setReadOnly(!readOnly);
+            }
+            try (Connection conn = db.pool.getConnection()) {
+                assertTrue(conn.getAutoCommit());
+                assertEquals(isolation, conn.getTransactionIsolation());
+                assertEquals(readOnly, conn.isReadOnly());
+            }
+            assertEquals(1, db.pool.stats().created);
+        }
+    }
+}
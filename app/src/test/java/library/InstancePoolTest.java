@@ -0,0 +1,69 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+// Each API request runs on a new thread; set-up work must still be shared between them.
+class InstancePoolTest {
+
+    @Test
+    void instanceIsReusedByTheNextThread() throws Exception {
+        AtomicInteger made = new AtomicInteger();
+        InstancePool<Object> pool = new InstancePool<>(4, () -> {
+            made.incrementAndGet();
+            return new Object();
+        });
+        AtomicReference<Object> first = new AtomicReference<>();
+        AtomicReference<Object> second = new AtomicReference<>();
+        runOnFreshThread(() -> pool.apply(first::getAndSet));
+        runOnFreshThread(() -> pool.apply(second::getAndSet));
+        assertSame(first.get(), second.get());
+        assertEquals(1, made.get());
+    }
+
+    @Test
+    void failedWorkDoesNotReturnItsInstance() {
+        InstancePool<Object> pool = new InstancePool<>(4, Object::new);
+        assertThrows(IllegalStateException.class, () -> pool.apply(o -> {
+            throw new IllegalStateException("half-updated");
+        }));
+        assertEquals(0, pool.idleCount());
+    }
+
+    // Tokens signed and checked from many short-lived threads at once all verify.
+    @Test
+    void tokensSignedConcurrentlyAllVerify() throws Exception {
+        SessionTokens tokens = new SessionTokens(new byte[32], 3600);
+        List<Thread> threads = new ArrayList<>();
+        AtomicInteger bad = new AtomicInteger();
+        for (int t = 0; t < 32; t++) {
+            String name = "user" + t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (!tokens.verify(tokens.issue(name, "User")).filter(p -> p.username.equals(name)).isPresent()) {
+                        bad.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(0, bad.get());
+        assertTrue(PasswordHasher.sha256Hex("user123").startsWith("e606e38b"));
+    }
+
+    private static void runOnFreshThread(Runnable work) throws InterruptedException {
+        Thread thread = new Thread(work);
+        thread.start();
+        thread.join();
+    }
+}
@@ -0,0 +1,98 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Replayed returns must only end the loan the branch itself made, and at the branch's fine.
+class JournalReplayTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @TempDir
+    Path dir;
+
+    // The copy went out centrally to member 2 while the branch lent it to member 1: the branch's
+    // issue is a conflict, so its return must not close member 2's loan or fine them.
+    @Test
+    void returnAfterConflictingIssueLeavesTheCentralLoanAlone() throws Exception {
+        try (TestDatabase db = new TestDatabase(2);
+             CirculationService central = new CirculationService(db.pool, 2)) {
+            int bookId = db.addBooks(1);
+            try (JournalRepository journal = snapshot(db)) {
+                journal.issue(bookId, 1, TODAY.minusDays(30), TODAY.minusDays(16), null);
+                assertEquals(CirculationService.IssueOutcome.ISSUED, central.issue(bookId, 2).join().outcome);
+                overdue(db, bookId);
+                assertTrue(journal.returnBook(bookId, TODAY, null).returned);
+
+                JournalReplay.Report report = JournalReplay.run(journal, db.pool, FineCalculator.DEFAULT);
+                assertEquals(0, report.applied);
+                assertEquals(2, report.conflicts.size(), report.toString());
+            }
+            assertEquals(1, db.count("SELECT COUNT(*) FROM transactions WHERE member_id = 2 AND return_date IS NULL " +
+                    "AND fine_amount = 0 AND book_id = " + bookId));
+            assertEquals(0, db.count("SELECT COUNT(*) FROM transactions WHERE member_id = 1"));
+        }
+    }
+
+    // The snapshot's loan to member 2 was returned at the branch, but centrally the copy has since
+    // gone to member 3; the member carried on the L line keeps the replay off member 3's loan.
+    @Test
+    void returnOnlyClosesTheLoanOfTheSameMember() throws Exception {
+        try (TestDatabase db = new TestDatabase(2);
+             CirculationService central = new CirculationService(db.pool, 2)) {
+            int bookId = db.addBooks(1);
+            central.issue(bookId, 2).join();
+            try (JournalRepository journal = snapshot(db)) {
+                assertTrue(journal.returnBook(bookId, TODAY, null).returned);
+                assertTrue(central.returnBook(bookId).join().returned);
+                central.issue(bookId, 3).join();
+
+                JournalReplay.Report report = JournalReplay.run(journal, db.pool, FineCalculator.DEFAULT);
+                assertEquals(1, report.conflicts.size(), report.toString());
+            }
+            assertEquals(1, db.count("SELECT COUNT(*) FROM transactions WHERE member_id = 3 AND return_date IS NULL"));
+        }
+    }
+
+    // The patron paid what the branch charged; the centre records that, not its own price.
+    @Test
+    void replayedReturnKeepsTheBranchFine() throws Exception {
+        try (TestDatabase db = new TestDatabase(2)) {
+            int bookId = db.addBooks(1);
+            BigDecimal charged;
+            try (JournalRepository journal = snapshot(db)) {
+                journal.issue(bookId, 1, TODAY.minusDays(30), TODAY.minusDays(16), null);
+                charged = journal.returnBook(bookId, TODAY, null).fine;
+                assertTrue(charged.signum() > 0);
+
+                JournalReplay.Report report = JournalReplay.run(journal, db.pool, new FineCalculator(new BigDecimal("0.01")));
+                assertEquals(2, report.applied, report.toString());
+            }
+            assertEquals(1, db.count("SELECT COUNT(*) FROM transactions WHERE member_id = 1 AND fine_amount = "
+                    + charged.toPlainString()));
+        }
+    }
+
+    private JournalRepository snapshot(TestDatabase db) throws Exception {
+        JournalRepository journal = JournalRepository.open(dir, FineCalculator.DEFAULT);
+        try (Connection conn = db.pool.getConnection()) {
+            journal.snapshot(conn);
+        }
+        return journal;
+    }
+
+    private static void overdue(TestDatabase db, int bookId) throws Exception {
+        try (Connection conn = db.connect(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE transactions SET due_date = DATEADD('DAY', -20, CURRENT_DATE) " +
+                    "WHERE return_date IS NULL AND book_id = " + bookId);
+        }
+    }
+}
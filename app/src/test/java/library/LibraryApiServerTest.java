@@ -0,0 +1,79 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+// Issue and return change any member's loans, so only Admin tokens may call them.
+class LibraryApiServerTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @Test
+    void issueAndReturnNeedAnAdminToken() throws Exception {
+        try (TestDatabase db = new TestDatabase(4);
+             CirculationService service = new CirculationService(db.pool, 4);
+             AuthService auth = AuthService.fromProperties(service);
+             LibraryApiServer api = new LibraryApiServer(service, auth, 0)) {
+            api.start();
+            String base = "http://localhost:" + api.port() + "/api";
+            int bookId = db.addBooks(1);
+
+            String user = login(base, "user", "user123");
+            assertEquals(200, send(get(base + "/books/" + bookId, user)));
+            assertEquals(403, send(post(base + "/books/" + bookId + "/issue", user, "{\"memberId\":7}")));
+            assertEquals(0, db.count("SELECT COUNT(*) FROM transactions"));
+
+            String admin = login(base, "admin", "admin123");
+            assertEquals(200, send(post(base + "/books/" + bookId + "/issue", admin, "{\"memberId\":7}")));
+            assertEquals(403, send(post(base + "/books/" + bookId + "/return", user, "")));
+            assertEquals(1, db.count("SELECT COUNT(*) FROM transactions WHERE return_date IS NULL"));
+            assertEquals(200, send(post(base + "/books/" + bookId + "/return", admin, "")));
+        }
+    }
+
+    // A refused request (full queue, or here a stopped service) is 503 with Retry-After, not 500.
+    @Test
+    void rejectedWorkIsServiceUnavailableWithRetryAfter() throws Exception {
+        try (TestDatabase db = new TestDatabase(2);
+             CirculationService service = new CirculationService(db.pool, 2);
+             AuthService auth = AuthService.fromProperties(service);
+             LibraryApiServer api = new LibraryApiServer(service, auth, 0)) {
+            api.start();
+            String base = "http://localhost:" + api.port() + "/api";
+            String user = login(base, "user", "user123");
+            service.close();
+
+            HttpResponse<Void> r = http.send(get(base + "/books/1", user), HttpResponse.BodyHandlers.discarding());
+            assertEquals(503, r.statusCode());
+            assertEquals("1", r.headers().firstValue("Retry-After").orElse(null));
+        }
+    }
+
+    private String login(String base, String username, String password) throws Exception {
+        HttpResponse<String> r = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, r.statusCode(), r.body());
+        return (String) ((Map<?, ?>) Json.parse(r.body())).get("token");
+    }
+
+    private int send(HttpRequest req) throws Exception {
+        return http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static HttpRequest get(String uri, String token) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private static HttpRequest post(String uri, String token, String body) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+}
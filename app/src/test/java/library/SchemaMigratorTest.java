@@ -0,0 +1,93 @@
+package library;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+// Installs seeded before migration 8 stored sha256("123") for `user`; upgrading must repair
+// that hash and leave a password the user has since changed alone.
+class SchemaMigratorTest {
+
+    private static final String OLD_SEED = "a665a45920422f9d417e4867efdc4fb8a04a1f3fff1fa07e998e86f7f7a27ae3";
+    private static final String USER123 = "e606e38b0d8c19b24cf0ee3808183162ea7cd63ff7912dbb22b5e803286b4446";
+    private static final String CHANGED = "0000000000000000000000000000000000000000000000000000000000000000";
+
+    @Test
+    void freshInstallSeedsTheUser123Hash() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            assertEquals(1, db.count("SELECT COUNT(*) FROM users WHERE username = 'user' AND password_hash = '" + USER123 + "'"));
+        }
+    }
+
+    @Test
+    void upgradeRepairsOnlyTheOldSeedHash() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            try (Connection conn = db.connect(); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE users SET password_hash = '" + OLD_SEED + "' WHERE username = 'user'");
+                stmt.executeUpdate("INSERT INTO users (username, password_hash, role) VALUES ('clerk', '" + OLD_SEED + "', 'User')");
+                stmt.executeUpdate("DELETE FROM schema_version WHERE version = 8");
+                assertEquals(1, SchemaMigrator.migrate(conn).size());
+            }
+            assertEquals(1, db.count("SELECT COUNT(*) FROM users WHERE username = 'user' AND password_hash = '" + USER123 + "'"));
+            assertEquals(1, db.count("SELECT COUNT(*) FROM users WHERE username = 'clerk' AND password_hash = '" + OLD_SEED + "'"));
+        }
+    }
+
+    @Test
+    void upgradeKeepsAChangedUserPassword() throws Exception {
+        try (TestDatabase db = new TestDatabase(1)) {
+            try (Connection conn = db.connect(); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE users SET password_hash = '" + CHANGED + "' WHERE username = 'user'");
+                stmt.executeUpdate("DELETE FROM schema_version WHERE version = 8");
+                SchemaMigrator.migrate(conn);
+            }
+            assertEquals(1, db.count("SELECT COUNT(*) FROM users WHERE username = 'user' AND password_hash = '" + CHANGED + "'"));
+        }
+    }
+
+    // Two desks starting against the same fresh database both come up, and the seed lands once.
+    @Test
+    void concurrentStartsOnAFreshDatabaseBothSucceed() throws Exception {
+        ExecutorService desks = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String url = "jdbc:h2:mem:race" + round + "_" + System.nanoTime() + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+                CyclicBarrier start = new CyclicBarrier(2);
+                Callable<Void> desk = () -> {
+                    try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+                        start.await();
+                        SchemaMigrator.migrate(conn);
+                    }
+                    return null;
+                };
+                Future<Void> first = desks.submit(desk);
+                Future<Void> second = desks.submit(desk);
+                first.get();
+                second.get();
+                try (Connection conn = DriverManager.getConnection(url, "sa", ""); Statement stmt = conn.createStatement()) {
+                    assertEquals(2, count(stmt, "SELECT COUNT(*) FROM users"));
+                    assertEquals(3, count(stmt, "SELECT COUNT(*) FROM books"));
+                    assertEquals(SchemaMigrator.latestVersion(), count(stmt, "SELECT MAX(version) FROM schema_version"));
+                    stmt.execute("SHUTDOWN");
+                }
+            }
+        } finally {
+            desks.shutdownNow();
+        }
+    }
+
+    private static long count(Statement stmt, String sql) throws Exception {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// A fresh, migrated in-memory H2 database per test, with a small pool over it.
+final class TestDatabase implements AutoCloseable {
+
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    final String url;
+    final ConnectionPool pool;
+
+    TestDatabase(int poolSize) throws SQLException {
+        url = "jdbc:h2:mem:test" + NEXT.incrementAndGet() + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        try (Connection conn = connect()) {
+            SchemaMigrator.migrate(conn);
+        }
+        pool = new ConnectionPool(url, "sa", "", poolSize, 30_000, 300_000, 0, 32);
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    // Adds `count` copies of distinct titles and returns the first new book_id.
+    int addBooks(int count) throws SQLException {
+        try (Connection conn = connect();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO books (title, author, category) VALUES (?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            int first = -1;
+            for (int i = 0; i < count; i++) {
+                ps.setString(1, "Title " + i);
+                ps.setString(2, "Author " + i);
+                ps.setString(3, "Tech");
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    if (first < 0) first = keys.getInt(1);
+                }
+            }
+            return first;
+        }
+    }
+
+    long count(String sql) throws SQLException {
+        try (Connection conn = connect(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        pool.close();
+        try (Connection conn = connect(); Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        }
+    }
+}
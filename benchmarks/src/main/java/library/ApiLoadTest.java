@@ -0,0 +1,141 @@
+package library;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ================= LOAD TEST: HTTP API =================
+// Starts LibraryApiServer on an embedded database and drives it with concurrent clients:
+// catalog page reads (half of them revalidating with If-None-Match), single-book lookups,
+// issues and returns. Reports p50/p99 per endpoint and overall throughput.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.ApiLoadTest [jdbcUrl] [user] [password] [clients] [requestsPerClient] [books]
+public class ApiLoadTest {
+
+    private static final Map<String, LatencyHistogram> LATENCY = new ConcurrentHashMap<>();
+    private static final AtomicLong ERRORS = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int requestsPerClient = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+        int books = args.length > 5 ? Integer.parseInt(args[5]) : 10_000;
+
+        BenchSchema.create(url, user, pass);
+        BenchSchema.seedBooks(url, user, pass, books);
+
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, 16, 30_000, 300_000, 0, 32);
+             CirculationService service = new CirculationService(pool, 16);
+             AuthService auth = AuthService.fromProperties(service);
+             LibraryApiServer api = new LibraryApiServer(service, auth, 0)) {
+            api.start();
+            String base = "http://localhost:" + api.port() + "/api";
+            HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+            HttpResponse<String> login = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"admin123\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (login.statusCode() != 200) throw new IllegalStateException("Login failed: " + login.body());
+            String token = (String) ((Map<?, ?>) Json.parse(login.body())).get("token");
+
+            // Warm up the JIT and the pool before measuring.
+            runClients(http, base, token, clients, requestsPerClient / 5, books);
+            LATENCY.clear();
+            ERRORS.set(0);
+
+            long start = System.nanoTime();
+            long total = runClients(http, base, token, clients, requestsPerClient, books);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            for (String endpoint : new String[]{"GET page", "GET page (304)", "GET book", "POST issue", "POST return"}) {
+                LatencyHistogram h = LATENCY.get(endpoint);
+                if (h != null) System.out.printf("%-16s %s%n", endpoint, h.summary());
+            }
+            System.out.printf("%n%d requests from %d clients in %.2f s = %.0f req/s, %d unexpected responses%n",
+                    total, clients, seconds, total / seconds, ERRORS.get());
+            System.out.println(pool.stats());
+            System.out.println();
+            System.out.println(service.metrics().report());
+            if (ERRORS.get() > 0) System.exit(1);
+        }
+    }
+
+    private static long runClients(HttpClient http, String base, String token, int clients, int requests, int books)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicLong sent = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread t = new Thread(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                Map<Integer, String> etags = new java.util.HashMap<>();
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        int roll = rnd.nextInt(100);
+                        int bookId = 1 + rnd.nextInt(books);
+                        if (roll < 50) {
+                            int after = rnd.nextInt(20) * 50;
+                            String etag = rnd.nextBoolean() ? etags.get(after) : null;
+                            HttpRequest.Builder req = get(base + "/books?after=" + after + "&limit=50", token);
+                            if (etag != null) req.header("If-None-Match", etag);
+                            HttpResponse<String> r = timed(http, req.build(), etag != null ? "GET page (304)" : "GET page");
+                            if (r.statusCode() == 200) r.headers().firstValue("ETag").ifPresent(e -> etags.put(after, e));
+                            else if (r.statusCode() != 304) ERRORS.incrementAndGet();
+                        } else if (roll < 70) {
+                            expect(timed(http, get(base + "/books/" + bookId, token).build(), "GET book"), 200);
+                        } else if (roll < 85) {
+                            HttpRequest req = post(base + "/books/" + bookId + "/issue", token,
+                                    "{\"memberId\":" + (1 + rnd.nextInt(500)) + "}");
+                            expect(timed(http, req, "POST issue"), 200, 409);
+                        } else {
+                            expect(timed(http, post(base + "/books/" + bookId + "/return", token, ""), "POST return"), 200, 409);
+                        }
+                        sent.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    ERRORS.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        done.await();
+        return sent.get();
+    }
+
+    private static HttpRequest.Builder get(String uri, String token) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Authorization", "Bearer " + token).GET();
+    }
+
+    private static HttpRequest post(String uri, String token, String body) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static HttpResponse<String> timed(HttpClient http, HttpRequest req, String endpoint) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> r = http.send(req, HttpResponse.BodyHandlers.ofString());
+        LATENCY.computeIfAbsent(endpoint, k -> new LatencyHistogram()).record(System.nanoTime() - start);
+        return r;
+    }
+
+    private static void expect(HttpResponse<String> r, int... allowed) {
+        for (int status : allowed) if (r.statusCode() == status) return;
+        System.err.println("Unexpected " + r.statusCode() + " from " + r.uri() + ": " + r.body());
+        ERRORS.incrementAndGet();
+    }
+}
@@ -0,0 +1,116 @@
+package library;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+// ================= BENCHMARK: AUTHENTICATION =================
+// 1. Legacy SHA-256 hex: the original per-call getInstance + StringBuilder code against
+//    PasswordHasher.sha256Hex (thread-local digest, lookup-table hex).
+// 2. PBKDF2 hashing throughput at the configured work factor.
+// 3. Sign-in through AuthService on an embedded database: full check (database + PBKDF2),
+//    cached repeat sign-in, and verifying the session token on later requests.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.AuthBenchmark [jdbcUrl] [user] [password] [iterations] [logins]
+public class AuthBenchmark {
+
+    private static volatile Object sink; // keeps the JIT from discarding the measured work
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : PasswordHasher.DEFAULT_ITERATIONS;
+        int logins = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        // --- 1. legacy hex hashing ---
+        int n = 1_000_000;
+        for (int i = 0; i < n / 4; i++) {
+            sink = legacyHash("user" + (i & 1023));
+            sink = PasswordHasher.sha256Hex("user" + (i & 1023));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) sink = legacyHash("user" + (i & 1023));
+        double legacy = n / ((System.nanoTime() - start) / 1e9);
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) sink = PasswordHasher.sha256Hex("user" + (i & 1023));
+        double reused = n / ((System.nanoTime() - start) / 1e9);
+        System.out.printf("SHA-256 hex, getInstance + StringBuilder  %,12.0f ops/s%n", legacy);
+        System.out.printf("SHA-256 hex, thread-local + lookup table  %,12.0f ops/s  (%.1fx)%n%n", reused, reused / legacy);
+
+        // --- 2. PBKDF2 ---
+        PasswordHasher hasher = new PasswordHasher(iterations);
+        sink = hasher.hash("warm-up");
+        LatencyHistogram pbkdf2 = new LatencyHistogram();
+        for (int i = 0; i < Math.max(5, logins / 2); i++) {
+            long t = System.nanoTime();
+            sink = hasher.hash("user123");
+            pbkdf2.record(System.nanoTime() - t);
+        }
+        System.out.printf("PBKDF2 hash (%,d iterations)  %s  = %.1f hashes/s per core%n%n",
+                iterations, pbkdf2.summary(), 1e9 / pbkdf2.meanNanos());
+
+        // --- 3. sign-in paths ---
+        BenchSchema.create(url, user, pass);
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, 4, 30_000, 300_000, 0, 32);
+             CirculationService service = new CirculationService(pool, 4);
+             AuthService auth = new AuthService(service, hasher, SessionTokens.fromProperties())) {
+            // First login upgrades the seeded SHA-256 hash to PBKDF2.
+            long t0 = System.nanoTime();
+            Optional<AuthService.Login> first = auth.login("admin", "admin123").join();
+            if (!first.isPresent()) throw new IllegalStateException("seeded credentials rejected");
+            System.out.printf("First sign-in (legacy hash, upgraded): %.3f ms%n", (System.nanoTime() - t0) / 1e6);
+            Thread.sleep(200); // let the background re-hash land
+
+            LatencyHistogram full = new LatencyHistogram();
+            for (int i = 0; i < logins; i++) {
+                auth.forget("admin");
+                long t = System.nanoTime();
+                sink = auth.login("admin", "admin123").join().get();
+                full.record(System.nanoTime() - t);
+            }
+            LatencyHistogram wrong = new LatencyHistogram();
+            for (int i = 0; i < Math.max(3, logins / 4); i++) {
+                long t = System.nanoTime();
+                sink = auth.login(i % 2 == 0 ? "admin" : "nobody", "wrong").join();
+                wrong.record(System.nanoTime() - t);
+            }
+            LatencyHistogram cached = new LatencyHistogram();
+            for (int i = 0; i < 100_000; i++) {
+                long t = System.nanoTime();
+                sink = auth.login("admin", "admin123").join().get();
+                cached.record(System.nanoTime() - t);
+            }
+            String token = first.get().token;
+            LatencyHistogram tokenCheck = new LatencyHistogram();
+            for (int i = 0; i < 200_000; i++) {
+                long t = System.nanoTime();
+                sink = auth.verifyToken(token).get();
+                tokenCheck.record(System.nanoTime() - t);
+            }
+            System.out.printf("%-34s %s%n", "Sign-in, database + PBKDF2", full.summary());
+            System.out.printf("%-34s %s%n", "Rejected (wrong pw / no such user)", wrong.summary());
+            System.out.printf("%-34s %s%n", "Sign-in, cached verifier", cached.summary());
+            System.out.printf("%-34s %s  = %,.0f checks/s%n", "Session token check", tokenCheck.summary(),
+                    1e9 / tokenCheck.meanNanos());
+            System.out.println("\n" + auth);
+        }
+    }
+
+    // The hashPassword this replaced, verbatim.
+    private static String legacyHash(String base) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(base.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hexString = new StringBuilder();
+            for (byte b : hash) {
+                String hex = Integer.toHexString(0xff & b);
+                if (hex.length() == 1) hexString.append('0');
+                hexString.append(hex);
+            }
+            return hexString.toString();
+        } catch (Exception ex) {
+            throw new RuntimeException("Error hashing password", ex);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package library;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ================= JMH: SIGN-IN =================
+// hashPassword (PBKDF2 at the configured work factor) and its verify, the credential query on
+// its own through the service executor, and a repeat sign-in answered by the cached verifier.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthJmh {
+
+    @Param("600000")
+    public int iterations;
+
+    private PasswordHasher hasher;
+    private String stored;
+    private ConnectionPool pool;
+    private CirculationService service;
+    private AuthService auth;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        hasher = new PasswordHasher(iterations);
+        stored = hasher.hash("admin123");
+        String url = BenchSchema.memoryUrl("auth");
+        BenchSchema.create(url, "sa", "");
+        pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+        service = new CirculationService(pool, 4);
+        auth = new AuthService(service, hasher, SessionTokens.fromProperties());
+        if (!auth.login("admin", "admin123").join().isPresent()) throw new IllegalStateException("seeded credentials rejected");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        auth.close();
+        service.close();
+        pool.close();
+    }
+
+    @Benchmark
+    public Object hashPassword() {
+        return hasher.hash("user123");
+    }
+
+    @Benchmark
+    public Object verifyPassword() {
+        return hasher.verify("admin123", stored);
+    }
+
+    @Benchmark
+    public Object credentialQuery() {
+        return service.perform("findCredential", (repo, call) -> repo.findCredential("admin", call)).join();
+    }
+
+    @Benchmark
+    public Object cachedSignIn() {
+        return auth.login("admin", "admin123").join().get();
+    }
+}
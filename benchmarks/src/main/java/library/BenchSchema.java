@@ -0,0 +1,91 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+// Schema and seed data for benchmarks on an embedded database.
+final class BenchSchema {
+
+    static final String DEFAULT_URL = "jdbc:h2:mem:bench;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private BenchSchema() {
+    }
+
+    // A private in-memory database, so suites sharing a JVM (JMH with -f 0) never see each other's rows.
+    static String memoryUrl(String name) {
+        return "jdbc:h2:mem:" + name + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    // Same versioned migrations the application runs at startup.
+    static void create(String url, String user, String pass) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, user, pass)) {
+            SchemaMigrator.migrate(conn);
+        }
+    }
+
+    static void seedBooks(String url, String user, String pass, int count) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO books (title, author, category) VALUES (?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 1; i <= count; i++) {
+                ps.setString(1, "Title " + i);
+                ps.setString(2, "Author " + (i % 997));
+                ps.setString(3, i % 3 == 0 ? "Fiction" : "Tech");
+                ps.addBatch();
+                if (i % 1000 == 0) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private static final String[] WORDS = {
+            "java", "effective", "clean", "code", "history", "modern", "garden", "river", "night", "empire",
+            "secret", "silent", "winter", "summer", "ocean", "mountain", "shadow", "light", "journey", "kingdom",
+            "science", "practical", "guide", "introduction", "advanced", "data", "systems", "design", "patterns", "art",
+            "war", "peace", "children", "stars", "machine", "learning", "cooking", "travel", "poetry", "letters"};
+    private static final String[] NAMES = {
+            "Bloch", "Martin", "Coelho", "Austen", "Tolstoy", "Knuth", "Fowler", "Orwell", "Rowling", "Tanenbaum",
+            "Hemingway", "Woolf", "Morrison", "Murakami", "Achebe", "Sagan", "Hawking", "Christie", "Dickens", "Twain"};
+    private static final String[] CATEGORIES = {"Fiction", "Tech", "History", "Science", "Poetry", "Travel"};
+
+    // Realistic-ish catalog for search benchmarks: `works` distinct titles, copies spread evenly.
+    static void seedCatalog(String url, String user, String pass, int copies, int works) throws SQLException {
+        Random rnd = new Random(42);
+        String[] titles = new String[works];
+        String[] authors = new String[works];
+        String[] categories = new String[works];
+        for (int w = 0; w < works; w++) {
+            int len = 2 + rnd.nextInt(3);
+            StringBuilder title = new StringBuilder();
+            for (int i = 0; i < len; i++) {
+                String word = WORDS[rnd.nextInt(WORDS.length)];
+                if (i > 0) title.append(' ');
+                title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            }
+            titles[w] = title.append(' ').append(w).toString(); // unique work key
+            authors[w] = (char) ('A' + rnd.nextInt(26)) + ". " + NAMES[rnd.nextInt(NAMES.length)];
+            categories[w] = CATEGORIES[rnd.nextInt(CATEGORIES.length)];
+        }
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO books (title, author, category) VALUES (?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < copies; i++) {
+                int w = i % works;
+                ps.setString(1, titles[w]);
+                ps.setString(2, authors[w]);
+                ps.setString(3, categories[w]);
+                ps.addBatch();
+                if ((i + 1) % 1000 == 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ================= JMH LAUNCHER =================
+// Main class of benchmarks.jar: JMH's own command line, except that results are written as JSON
+// (jmh-result.json, or -rff <file>) unless -rf picks another format, so runs of two versions can
+// be compared side by side.
+//
+//   java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,66 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ================= JMH: BULK ADD =================
+// The admin's Add Book with a quantity: batched, chunk-committed copy inserts plus the title
+// row and its counts. New copies go to a rotating set of 1,000 titles, so most calls extend an
+// existing title. Every iteration starts from an empty database, so the tables don't grow
+// across the run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkAddJmh {
+
+    @Param({"1", "100", "1000"})
+    public int quantity;
+
+    private final String url = BenchSchema.memoryUrl("bulkadd");
+    private ConnectionPool pool;
+    private CirculationService service;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void open() throws Exception {
+        BenchSchema.create(url, "sa", "");
+        pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+        service = new CirculationService(pool, 4);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws Exception {
+        service.close();
+        pool.close();
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Benchmark
+    public int addCopies() {
+        int title = next++ % 1_000;
+        int added = service.addCopies("Bulk Title " + title, "Author " + (title % 97), quantity).join();
+        if (added != quantity) throw new IllegalStateException("added " + added + " of " + quantity);
+        return added;
+    }
+}
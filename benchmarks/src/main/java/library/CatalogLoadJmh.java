@@ -0,0 +1,85 @@
+package library;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ================= JMH: CATALOG LOAD =================
+// What refreshBookTable used to do in one go, as the dashboard does it now, at 10k/100k/1M copies
+// (one title per ten copies):
+// 1. opening the dashboard: title count plus the first 200-row page, through the service;
+// 2. reading every title page by page, as scrolling to the bottom would;
+// 3. building the search index in its streaming pass over books.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CatalogLoadJmh {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private CirculationService service;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        String url = BenchSchema.memoryUrl("catalog");
+        BenchSchema.create(url, "sa", "");
+        BenchSchema.seedCatalog(url, "sa", "", rows, rows / 10);
+        pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+        service = new CirculationService(pool, 4);
+        new TitleBackfill(pool, service.events(), 5_000, 0).run();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        service.close();
+        pool.close();
+    }
+
+    @Benchmark
+    public Object dashboardOpen() {
+        int count = service.submit("titleCount", (conn, call) -> TitleInventory.count(conn)).join();
+        List<TitleRow> first = service.submit("titlePage",
+                (conn, call) -> TitleInventory.readPage(conn, 0, TitleTableModel.PAGE_SIZE)).join();
+        if (count == 0 || first.isEmpty()) throw new IllegalStateException("empty catalog");
+        return first;
+    }
+
+    @Benchmark
+    public int allTitles() throws Exception {
+        int read = 0;
+        try (Connection conn = pool.getConnection()) {
+            for (List<TitleRow> page = TitleInventory.readPage(conn, 0, CirculationService.MAX_PAGE_SIZE); !page.isEmpty();
+                 page = TitleInventory.readPage(conn, page.get(page.size() - 1).titleId, CirculationService.MAX_PAGE_SIZE)) {
+                read += page.size();
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public Object searchIndexBuild() throws Exception {
+        CatalogIndex index = new CatalogIndex();
+        try (Connection conn = pool.getConnection()) {
+            index.build(conn);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,84 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+// ================= BENCHMARK: INDEX SEARCH vs LIKE '%term%' =================
+// Seeds a large catalog, builds CatalogIndex with the same streaming scan the app uses at
+// startup, then times the same queries through the index and through the LIKE scan that a
+// naive search box would send to the database.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.CatalogSearchBenchmark [jdbcUrl] [user] [password] [copies] [works] [iterations]
+public class CatalogSearchBenchmark {
+
+    private static final String[] QUERIES = {"java", "eff jav", "night garden", "tolstoy", "hist", "sci guide", "ocean war"};
+    private static final String LIKE_QUERY =
+            "SELECT book_id, title, author, status FROM books " +
+            "WHERE title LIKE ? OR author LIKE ? OR category LIKE ? ORDER BY book_id LIMIT " + CatalogIndex.DEFAULT_LIMIT;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int copies = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+        int works = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+        int iterations = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+
+        BenchSchema.create(url, user, pass);
+        long seedStart = System.nanoTime();
+        BenchSchema.seedCatalog(url, user, pass, copies, works);
+        System.out.printf("Seeded %,d copies of %,d works in %d ms%n", copies, works, (System.nanoTime() - seedStart) / 1_000_000);
+
+        CatalogIndex index = new CatalogIndex();
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long heapBefore = rt.totalMemory() - rt.freeMemory();
+        long buildStart = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url, user, pass)) {
+            index.build(conn);
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        System.gc();
+        long heapAfter = rt.totalMemory() - rt.freeMemory();
+        System.out.printf("Index build: %,d copies in %d ms, ~%d MB heap%n%n",
+                index.size(), buildMillis, Math.max(0, heapAfter - heapBefore) >> 20);
+
+        // Warm up the JIT on the index path before measuring.
+        for (int i = 0; i < iterations; i++) index.search(QUERIES[i % QUERIES.length], CatalogIndex.DEFAULT_LIMIT);
+
+        LatencyHistogram indexed = new LatencyHistogram();
+        for (int i = 0; i < iterations; i++) {
+            String q = QUERIES[i % QUERIES.length];
+            long start = System.nanoTime();
+            CatalogIndex.Result r = index.search(q, CatalogIndex.DEFAULT_LIMIT);
+            indexed.record(System.nanoTime() - start);
+            if (i < QUERIES.length) System.out.printf("  %-14s %,7d titles, %d rows shown%n", q, r.matchingWorks, r.rows.size());
+        }
+
+        // LIKE can only match one contiguous substring, so it gets the first term of each query.
+        LatencyHistogram like = new LatencyHistogram();
+        int likeRuns = Math.max(QUERIES.length, iterations / 10);
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             PreparedStatement ps = conn.prepareStatement(LIKE_QUERY)) {
+            for (int i = 0; i < likeRuns; i++) {
+                List<String> terms = CatalogIndex.tokenize(QUERIES[i % QUERIES.length]);
+                String pattern = "%" + terms.get(0) + "%";
+                long start = System.nanoTime();
+                ps.setString(1, pattern);
+                ps.setString(2, pattern);
+                ps.setString(3, pattern);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) rs.getInt(1);
+                }
+                like.record(System.nanoTime() - start);
+            }
+        }
+
+        System.out.printf("%n%-18s %s%n", "CatalogIndex", indexed.summary());
+        System.out.printf("%-18s %s%n", "LIKE '%term%'", like.summary());
+        System.out.printf("%nSpeed-up (p50): %.0fx%n", like.percentileNanos(50) / (double) Math.max(1, indexed.percentileNanos(50)));
+    }
+}
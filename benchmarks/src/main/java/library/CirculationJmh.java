@@ -0,0 +1,132 @@
+package library;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ================= JMH: ISSUE AND RETURN =================
+// The desk's Issue (performIssue) and Return actions end to end through CirculationService:
+// executor hop, the claim-by-UPDATE transaction, title counts and catalog events.
+// Each iteration walks through the copies in order, all on the shelf for issue and all on loan
+// for return, and puts them back untimed afterwards, so every measured call succeeds.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CirculationJmh {
+
+    @State(Scope.Benchmark)
+    public static class Desk {
+
+        // Must cover one iteration's worth of calls; a run that runs out fails rather than
+        // quietly measuring the "already issued" path.
+        @Param("50000")
+        public int copies;
+
+        ConnectionPool pool;
+        CirculationService service;
+
+        @Setup(Level.Trial)
+        public void open() throws Exception {
+            String url = BenchSchema.memoryUrl("circulation");
+            BenchSchema.create(url, "sa", "");
+            BenchSchema.seedCatalog(url, "sa", "", copies, Math.max(1, copies / 10));
+            pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+            service = new CirculationService(pool, 4);
+            new TitleBackfill(pool, service.events(), 1_000, 0).run();
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            service.close();
+            pool.close();
+        }
+
+        int take(int next) {
+            if (next > copies) throw new IllegalStateException("All " + copies + " copies used in one iteration; raise -p copies");
+            return next;
+        }
+
+        // Copies [from, to) as scan sessions, outside the measurement.
+        void issueRange(int from, int to) {
+            for (int start = from; start < to; start += CirculationService.MAX_SESSION_SIZE) {
+                int[] ids = ids(start, Math.min(to, start + CirculationService.MAX_SESSION_SIZE));
+                if (service.issueAll(ids, 1).join().completed() != ids.length) throw new IllegalStateException("copies not on the shelf");
+            }
+        }
+
+        void returnRange(int from, int to) {
+            for (int start = from; start < to; start += CirculationService.MAX_SESSION_SIZE) {
+                int[] ids = ids(start, Math.min(to, start + CirculationService.MAX_SESSION_SIZE));
+                if (service.returnAll(ids).join().completed() != ids.length) throw new IllegalStateException("copies not on loan");
+            }
+        }
+
+        private static int[] ids(int from, int to) {
+            int[] ids = new int[to - from];
+            for (int i = 0; i < ids.length; i++) ids[i] = from + i;
+            return ids;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shelf {
+        int next;
+
+        @Setup(Level.Iteration)
+        public void rewind() {
+            next = 1;
+        }
+
+        @TearDown(Level.Iteration)
+        public void putBack(Desk desk) {
+            desk.returnRange(1, Math.min(next, desk.copies + 1));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OnLoan {
+        int next;
+
+        @Setup(Level.Iteration)
+        public void lend(Desk desk) {
+            desk.issueRange(1, desk.copies + 1);
+            next = 1;
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect(Desk desk) {
+            desk.returnRange(next, desk.copies + 1);
+        }
+    }
+
+    @Benchmark
+    public Object issue(Desk desk, Shelf shelf) {
+        int bookId = desk.take(shelf.next++);
+        CirculationService.IssueResult result =
+                desk.service.issue(bookId, 1 + ThreadLocalRandom.current().nextInt(500)).join();
+        if (result.outcome != CirculationService.IssueOutcome.ISSUED) throw new IllegalStateException("copy " + bookId + ": " + result.outcome);
+        return result;
+    }
+
+    @Benchmark
+    public Object returnBook(Desk desk, OnLoan onLoan) {
+        int bookId = desk.take(onLoan.next++);
+        CirculationService.ReturnResult result = desk.service.returnBook(bookId).join();
+        if (!result.returned) throw new IllegalStateException("copy " + bookId + " was not on loan");
+        return result;
+    }
+}
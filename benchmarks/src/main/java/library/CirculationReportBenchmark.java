@@ -0,0 +1,121 @@
+package library;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Random;
+
+// ================= BENCHMARK: CIRCULATION REPORTS =================
+// Seeds years of loan history (most loans returned, some late with fines), runs a full
+// CirculationReport and checks its totals against counts kept while seeding. Then returns a
+// slice of the open loans, issues some new ones, and checks that an incremental report picks
+// up exactly that activity. Run with a small heap and a file database (an in-memory H2 would
+// hold the whole history on the same heap) to see that the report's memory follows the catalog
+// and the number of days, not the length of the history.
+//
+//   java -Xmx96m -cp benchmarks/target/benchmarks.jar library.CirculationReportBenchmark jdbc:h2:/tmp/reports sa "" [loans] [years]
+public class CirculationReportBenchmark {
+
+    private static final int COPIES = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int loans = args.length > 3 ? Integer.parseInt(args[3]) : 500_000;
+        int years = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        BenchSchema.create(url, user, pass);
+        BenchSchema.seedCatalog(url, user, pass, COPIES, COPIES / 10);
+        LocalDate today = LocalDate.now();
+        FineCalculator fines = FineCalculator.DEFAULT;
+
+        long returns = 0;
+        long late = 0;
+        long fineCents = 0;
+        long seedStart = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO transactions (book_id, member_id, issue_date, due_date, return_date, fine_amount, " +
+                     "created_at, last_modified) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            Random rnd = new Random(11);
+            int span = years * 365;
+            for (int i = 1; i <= loans; i++) {
+                // Issue dates move forward through the history, as trans_id does.
+                LocalDate issued = today.minusDays(span - (long) i * span / loans + 1);
+                LocalDate due = issued.plusDays(CirculationService.LOAN_DAYS);
+                LocalDate returned = rnd.nextInt(20) == 0 ? null : issued.plusDays(1 + rnd.nextInt(25));
+                if (returned != null && returned.isAfter(today)) returned = null;
+                BigDecimal fine = returned == null ? BigDecimal.ZERO.setScale(2) : fines.fineFor(due, returned);
+                ps.setInt(1, 1 + rnd.nextInt(COPIES));
+                ps.setInt(2, 1 + rnd.nextInt(50_000));
+                ps.setDate(3, java.sql.Date.valueOf(issued));
+                ps.setDate(4, java.sql.Date.valueOf(due));
+                ps.setDate(5, returned == null ? null : java.sql.Date.valueOf(returned));
+                ps.setBigDecimal(6, fine);
+                ps.setTimestamp(7, Timestamp.valueOf(issued.atStartOfDay()));
+                ps.setTimestamp(8, Timestamp.valueOf((returned == null ? issued : returned).atStartOfDay()));
+                ps.addBatch();
+                if (returned != null) {
+                    returns++;
+                    if (returned.isAfter(due)) late++;
+                    fineCents += fine.movePointRight(2).longValueExact();
+                }
+                if (i % 5_000 == 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+        System.out.printf("Seeded %,d loans over %d years in %d ms%n", loans, years, (System.nanoTime() - seedStart) / 1_000_000);
+
+        boolean ok;
+        Path out = Files.createTempDirectory("library-reports");
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, 2, 30_000, 300_000, 0, 32)) {
+            CirculationReport report = new CirculationReport(pool, CirculationReport.DEFAULT_TOP_TITLES, 0);
+            CirculationReport.Result full = report.run(out, false);
+            System.out.println("Full:        " + full);
+            ok = check("full", full, loans, returns, late, fineCents);
+
+            // Today's desk activity: every tenth open loan comes back (on time), 1,000 new loans go out.
+            Thread.sleep(5); // past the watermark, which is exact to the millisecond
+            long returnedToday;
+            try (Connection conn = DriverManager.getConnection(url, user, pass);
+                 Statement stmt = conn.createStatement()) {
+                returnedToday = stmt.executeUpdate("UPDATE transactions SET return_date = due_date, fine_amount = 0 " +
+                        "WHERE return_date IS NULL AND MOD(trans_id, 10) = 0");
+                stmt.executeUpdate("INSERT INTO transactions (book_id, member_id, issue_date, due_date) " +
+                        "SELECT book_id, 1, CURRENT_DATE, DATEADD('DAY', 15, CURRENT_DATE) FROM books WHERE book_id <= 1000");
+            }
+            Thread.sleep(5);
+            CirculationReport.Result incremental = report.run(out, true);
+            System.out.println("Incremental: " + incremental);
+            ok &= check("incremental", incremental, 1_000, returnedToday, 0, 0);
+        }
+
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        System.out.printf("Heap in use after runs: %d MB (max %d MB)%n",
+                (rt.totalMemory() - rt.freeMemory()) >> 20, rt.maxMemory() >> 20);
+        System.out.println(ok ? "PASS: report totals match the seeded history" : "FAIL: report totals differ");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean check(String label, CirculationReport.Result r, long loans, long returns, long late, long fineCents) {
+        boolean ok = r.loans == loans && r.returns == returns && r.lateReturns == late && r.fineCents == fineCents;
+        if (!ok) {
+            System.out.printf("%s: expected %d loans, %d returns, %d late, %d cents; got %d, %d, %d, %d%n", label,
+                    loans, returns, late, fineCents, r.loans, r.returns, r.lateReturns, r.fineCents);
+        }
+        return ok;
+    }
+}
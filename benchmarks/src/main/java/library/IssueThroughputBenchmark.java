@@ -0,0 +1,86 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// ================= BENCHMARK: CONCURRENT ISSUE / RETURN =================
+// Many desks hammer a handful of copies with random issues and returns through the real
+// CirculationService, and the run reports operations per second and pool behaviour under that
+// contention. That no copy is ever issued twice is checked by CirculationConcurrencyTest.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.IssueThroughputBenchmark [jdbcUrl] [user] [password] [threads] [opsPerThread] [books]
+public class IssueThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        int opsPerThread = args.length > 4 ? Integer.parseInt(args[4]) : 2_000;
+        int books = args.length > 5 ? Integer.parseInt(args[5]) : 8; // few copies => heavy contention
+
+        BenchSchema.create(url, user, pass);
+        BenchSchema.seedBooks(url, user, pass, books);
+        int firstId;
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(book_id) FROM books")) {
+            rs.next();
+            firstId = rs.getInt(1);
+        }
+
+        AtomicLong issued = new AtomicLong();
+        AtomicLong returned = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, threads, 30_000, 300_000, 0, 32);
+             CirculationService service = new CirculationService(pool, threads)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> desks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread desk = new Thread(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < opsPerThread; i++) {
+                        int bookId = firstId + rnd.nextInt(books);
+                        try {
+                            if (rnd.nextBoolean()) {
+                                CirculationService.IssueResult r = service.issue(bookId, rnd.nextInt(1, 500)).join();
+                                (r.outcome == CirculationService.IssueOutcome.ISSUED ? issued : rejected).incrementAndGet();
+                            } else {
+                                (service.returnBook(bookId).join().returned ? returned : rejected).incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            errors.incrementAndGet();
+                            e.printStackTrace();
+                        }
+                    }
+                }, "desk-" + t);
+                desks.add(desk);
+                desk.start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread desk : desks) desk.join();
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            long total = (long) threads * opsPerThread;
+            System.out.printf("%d ops in %.2f s = %.0f ops/s (issued=%d returned=%d rejected=%d errors=%d)%n",
+                    total, seconds, total / seconds, issued.get(), returned.get(), rejected.get(), errors.get());
+            System.out.println(pool.stats());
+        }
+    }
+}
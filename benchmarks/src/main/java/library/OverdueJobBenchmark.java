@@ -0,0 +1,107 @@
+package library;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+// ================= BENCHMARK: OVERDUE JOB =================
+// Seeds a large transactions table (mostly open loans, due dates spread over the last
+// months), runs OverdueJob twice and checks overdue_loans against totals computed while
+// seeding. The second run exercises the range-replace path on an already populated summary,
+// after some loans have been returned. Run with a small heap (-Xmx64m) to see that memory
+// stays flat regardless of the row count.
+//
+//   java -Xmx64m -cp benchmarks/target/benchmarks.jar library.OverdueJobBenchmark [jdbcUrl] [user] [password] [loans] [threads] [chunkSize]
+public class OverdueJobBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int loans = args.length > 3 ? Integer.parseInt(args[3]) : 1_000_000;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+        int chunkSize = args.length > 5 ? Integer.parseInt(args[5]) : OverdueJob.DEFAULT_CHUNK_SIZE;
+
+        BenchSchema.create(url, user, pass);
+        BenchSchema.seedBooks(url, user, pass, 1_000);
+        LocalDate today = LocalDate.now();
+        FineCalculator fines = FineCalculator.DEFAULT;
+
+        long expectedCount = 0;
+        BigDecimal expectedTotal = BigDecimal.ZERO.setScale(2);
+        long seedStart = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection(url, user, pass);
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO transactions (book_id, member_id, issue_date, due_date, return_date) VALUES (?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            Random rnd = new Random(7);
+            for (int i = 1; i <= loans; i++) {
+                LocalDate due = today.minusDays(rnd.nextInt(120) - 30); // 30 days ahead .. 90 days late
+                boolean returned = rnd.nextInt(5) == 0;
+                ps.setInt(1, 4 + rnd.nextInt(1_000));
+                ps.setInt(2, 1 + rnd.nextInt(50_000));
+                ps.setDate(3, java.sql.Date.valueOf(due.minusDays(CirculationService.LOAN_DAYS)));
+                ps.setDate(4, java.sql.Date.valueOf(due));
+                ps.setDate(5, returned ? java.sql.Date.valueOf(today) : null);
+                ps.addBatch();
+                if (!returned && due.isBefore(today)) {
+                    expectedCount++;
+                    expectedTotal = expectedTotal.add(fines.fineFor(due, today));
+                }
+                if (i % 5_000 == 0) {
+                    ps.executeBatch();
+                    conn.commit();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+        }
+        System.out.printf("Seeded %,d loans in %d ms%n", loans, (System.nanoTime() - seedStart) / 1_000_000);
+
+        boolean ok;
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, threads + 1, 30_000, 300_000, 0, 32);
+             OverdueJob job = new OverdueJob(pool, fines, chunkSize, threads)) {
+            System.out.println("Run 1: " + job.run(today));
+            ok = verify(url, user, pass, expectedCount, expectedTotal);
+
+            // Return every tenth overdue loan, then re-run: those must disappear from the summary.
+            long dropped;
+            BigDecimal droppedTotal = BigDecimal.ZERO.setScale(2);
+            try (Connection conn = DriverManager.getConnection(url, user, pass);
+                 Statement stmt = conn.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT COUNT(*), SUM(accrued_fine) FROM overdue_loans WHERE MOD(trans_id, 10) = 0")) {
+                    rs.next();
+                    dropped = rs.getLong(1);
+                    if (rs.getBigDecimal(2) != null) droppedTotal = rs.getBigDecimal(2);
+                }
+                stmt.executeUpdate("UPDATE transactions SET return_date = CURRENT_DATE " +
+                        "WHERE MOD(trans_id, 10) = 0 AND return_date IS NULL");
+            }
+            System.out.println("Run 2: " + job.run(today));
+            ok &= verify(url, user, pass, expectedCount - dropped, expectedTotal.subtract(droppedTotal));
+        }
+
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        System.out.printf("Heap in use after runs: %d MB (max %d MB)%n",
+                (rt.totalMemory() - rt.freeMemory()) >> 20, rt.maxMemory() >> 20);
+        System.out.println(ok ? "✅ PASS: overdue_loans matches the expected backlog" : "❌ FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean verify(String url, String user, String pass, long count, BigDecimal total) throws Exception {
+        try (Connection conn = DriverManager.getConnection(url, user, pass)) {
+            OverdueJob.Backlog backlog = OverdueJob.readBacklog(conn, 5);
+            boolean ok = backlog.count == count && backlog.totalFines.compareTo(total) == 0;
+            System.out.printf("  summary: %d loans, $%s (expected %d, $%s)%s%n", backlog.count,
+                    backlog.totalFines.toPlainString(), count, total.toPlainString(), ok ? "" : "  <-- MISMATCH");
+            return ok;
+        }
+    }
+}
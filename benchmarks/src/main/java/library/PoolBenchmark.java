@@ -0,0 +1,66 @@
+package library;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// ================= BENCHMARK: POOLED vs DriverManager =================
+// Compares what one desk click pays for a connection today (DriverManager per call)
+// against borrowing from ConnectionPool, with and without running a small query.
+//
+// Runs against an embedded database by default so it needs no MySQL server:
+//   java -cp benchmarks/target/benchmarks.jar library.PoolBenchmark [jdbcUrl] [user] [password] [iterations]
+public class PoolBenchmark {
+
+    private static final String QUERY = "SELECT status FROM books WHERE book_id = ?";
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : BenchSchema.DEFAULT_URL;
+        String user = args.length > 1 ? args[1] : "sa";
+        String pass = args.length > 2 ? args[2] : "";
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+
+        BenchSchema.create(url, user, pass);
+        BenchSchema.seedBooks(url, user, pass, 1);
+
+        try (ConnectionPool pool = new ConnectionPool(url, user, pass, 4, 10_000, 300_000, 0, 32)) {
+            // Warm up both paths so the JIT and the pool are in steady state before measuring.
+            run("warm-up", iterations / 4, () -> DriverManager.getConnection(url, user, pass), false);
+            run("warm-up", iterations / 4, pool::getConnection, false);
+
+            LatencyHistogram direct = run("DriverManager borrow", iterations,
+                    () -> DriverManager.getConnection(url, user, pass), false);
+            LatencyHistogram pooled = run("Pool borrow", iterations, pool::getConnection, false);
+            LatencyHistogram directQuery = run("DriverManager borrow+query", iterations,
+                    () -> DriverManager.getConnection(url, user, pass), true);
+            LatencyHistogram pooledQuery = run("Pool borrow+query", iterations, pool::getConnection, true);
+
+            System.out.printf("%nBorrow speed-up (mean): %.1fx%n", direct.meanNanos() / pooled.meanNanos());
+            System.out.printf("Borrow+query speed-up (mean): %.1fx%n", directQuery.meanNanos() / pooledQuery.meanNanos());
+            System.out.println("\n" + pool.stats());
+        }
+    }
+
+    private static LatencyHistogram run(String label, int iterations, ConnectionSource source, boolean query)
+            throws SQLException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            try (Connection conn = source.getConnection()) {
+                if (query) {
+                    try (PreparedStatement ps = conn.prepareStatement(QUERY)) {
+                        ps.setInt(1, 1);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            rs.next();
+                        }
+                    }
+                }
+            }
+            histogram.record(System.nanoTime() - start);
+        }
+        if (!label.equals("warm-up")) System.out.printf("%-28s %s%n", label, histogram.summary());
+        return histogram;
+    }
+}
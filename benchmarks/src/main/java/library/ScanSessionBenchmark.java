@@ -0,0 +1,85 @@
+package library;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+
+// ================= BENCHMARK: SCAN SESSIONS =================
+// Time to check out and then return an armful of N copies for one patron:
+// 1. one issue/return per copy, as the single-copy dialogs do (a transaction each);
+// 2. one scan session each way (one validating IN query, one transaction, batched writes).
+// On the central database (embedded H2: no network, so per-row engine work dominates and the
+// saved round trips and commits are worth far more against MySQL), then on the branch journal,
+// where a session costs one fsync instead of one per copy.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.ScanSessionBenchmark [copies] [rounds]
+public class ScanSessionBenchmark {
+
+    private static final int[] ARMFULS = {1, 5, 20, 50};
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String url = BenchSchema.DEFAULT_URL;
+
+        BenchSchema.create(url, "sa", "");
+        BenchSchema.seedCatalog(url, "sa", "", copies, Math.max(1, copies / 10));
+
+        try (ConnectionPool pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+             CirculationService service = new CirculationService(pool, 4)) {
+            System.out.println("Title backfill: " + new TitleBackfill(pool, service.events(), 1_000, 0).run());
+            compare("central (H2)", service, copies, rounds);
+
+            Path dir = Files.createTempDirectory("library-journal");
+            try (JournalRepository journal = JournalRepository.open(dir, FineCalculator.DEFAULT);
+                 Connection conn = pool.getConnection()) {
+                journal.snapshot(conn);
+            }
+            try (CirculationService branch = new CirculationService(
+                    JournalRepository.open(dir, FineCalculator.DEFAULT), 4, new Metrics())) {
+                compare("branch journal (fsync per write)", branch, copies, rounds);
+            }
+        }
+    }
+
+    private static void compare(String label, CirculationService service, int copies, int rounds) {
+        for (int size : ARMFULS) run(service, copies, size, rounds / 4); // warm-up
+        System.out.printf("%n%s%n%-8s %-28s %-28s %s%n", label, "copies", "one at a time (per patron)",
+                "scan session (per patron)", "speed-up");
+        for (int size : ARMFULS) {
+            double[] ms = run(service, copies, size, Math.max(10, rounds * 5 / size));
+            System.out.printf("%-8d %-28s %-28s %.1fx%n", size, String.format("%.2f ms", ms[0]),
+                    String.format("%.2f ms", ms[1]), ms[0] / ms[1]);
+        }
+    }
+
+    // Average milliseconds to check out and return `size` distinct copies, each way round.
+    private static double[] run(CirculationService service, int copies, int size, int rounds) {
+        long single = 0;
+        long session = 0;
+        for (int r = 0; r < rounds; r++) {
+            int[] ids = armful(copies, size);
+            int member = 1 + ThreadLocalRandom.current().nextInt(500);
+
+            long t = System.nanoTime();
+            for (int id : ids) service.issue(id, member).join();
+            for (int id : ids) service.returnBook(id).join();
+            single += System.nanoTime() - t;
+
+            t = System.nanoTime();
+            service.issueAll(ids, member).join();
+            service.returnAll(ids).join();
+            session += System.nanoTime() - t;
+        }
+        return new double[]{single / 1e6 / rounds, session / 1e6 / rounds};
+    }
+
+    // Consecutive ids from a random start, so both ways see the same rows.
+    private static int[] armful(int copies, int size) {
+        int start = 1 + ThreadLocalRandom.current().nextInt(copies - size);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) ids[i] = start + i;
+        return ids;
+    }
+}
@@ -0,0 +1,89 @@
+package library;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+
+// ================= BENCHMARK: STORAGE BACKENDS =================
+// The desk operations through CirculationService on each LibraryRepository:
+// 1. the central database (embedded H2 here, so no network in the numbers);
+// 2. the branch journal, with and without an fsync per change.
+// Then the journal's own costs: taking a snapshot, re-opening (replaying the file into memory)
+// and replaying the branch's changes into the central database.
+//
+//   java -cp benchmarks/target/benchmarks.jar library.StorageBenchmark [copies] [operations]
+public class StorageBenchmark {
+
+    private static volatile Object sink; // keeps the JIT from discarding the measured work
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        String url = BenchSchema.DEFAULT_URL;
+
+        BenchSchema.create(url, "sa", "");
+        BenchSchema.seedCatalog(url, "sa", "", copies, Math.max(1, copies / 10));
+        Path dir = Files.createTempDirectory("library-journal");
+
+        try (ConnectionPool pool = new ConnectionPool(url, "sa", "", 4, 30_000, 300_000, 0, 32);
+             CirculationService central = new CirculationService(pool, 4)) {
+            System.out.println("Title backfill: " + new TitleBackfill(pool, central.events(), 1_000, 0).run());
+            run("central (H2)", central, copies, operations);
+
+            long start = System.nanoTime();
+            try (JournalRepository journal = JournalRepository.open(dir, FineCalculator.DEFAULT);
+                 Connection conn = pool.getConnection()) {
+                journal.snapshot(conn);
+            }
+            System.out.printf("%nSnapshot of %,d copies: %d ms, %,d KB%n", copies, (System.nanoTime() - start) / 1_000_000,
+                    Files.size(dir.resolve(JournalRepository.FILE_NAME)) / 1024);
+
+            for (boolean sync : new boolean[]{true, false}) {
+                System.setProperty("library.journal.sync", Boolean.toString(sync));
+                start = System.nanoTime();
+                JournalRepository journal = JournalRepository.open(dir, FineCalculator.DEFAULT);
+                System.out.printf("%nJournal opened in %d ms: %s%n", (System.nanoTime() - start) / 1_000_000, journal);
+                try (CirculationService branch = new CirculationService(journal, 4, new Metrics())) {
+                    run("journal, sync=" + sync, branch, copies, operations);
+                }
+            }
+
+            try (JournalRepository journal = JournalRepository.open(dir, FineCalculator.DEFAULT)) {
+                int pending = journal.pendingChanges().size();
+                JournalReplay.Report report = JournalReplay.run(journal, pool, FineCalculator.DEFAULT);
+                System.out.printf("%nReplay into the central database: %s (%.0f changes/s)%n",
+                        report, pending / (report.elapsedNanos / 1e9));
+            }
+        }
+    }
+
+    private static void run(String label, CirculationService service, int copies, int operations) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        for (int i = 0; i < operations; i++) sink = service.findBook(1 + rnd.nextInt(copies)).join();
+
+        LatencyHistogram find = new LatencyHistogram();
+        for (int i = 0; i < operations; i++) {
+            long t = System.nanoTime();
+            sink = service.findBook(1 + rnd.nextInt(copies)).join();
+            find.record(System.nanoTime() - t);
+        }
+
+        // Each cycle issues an available copy and returns it again, leaving the catalog as it was.
+        LatencyHistogram issue = new LatencyHistogram();
+        LatencyHistogram giveBack = new LatencyHistogram();
+        for (int i = 0; i < operations / 5; i++) {
+            int bookId = 1 + rnd.nextInt(copies);
+            long t = System.nanoTime();
+            CirculationService.IssueResult issued = service.issue(bookId, 1 + rnd.nextInt(500)).join();
+            issue.record(System.nanoTime() - t);
+            if (issued.outcome != CirculationService.IssueOutcome.ISSUED) continue;
+            t = System.nanoTime();
+            sink = service.returnBook(bookId).join();
+            giveBack.record(System.nanoTime() - t);
+        }
+        System.out.printf("%-20s findBook %s%n", label, find.summary());
+        System.out.printf("%-20s issue    %s%n", "", issue.summary());
+        System.out.printf("%-20s return   %s%n", "", giveBack.summary());
+    }
+}